@@ -0,0 +1,72 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Character/index lookups in a CharacterRange and in ExtendedAlphabets
+ *  of various sizes.
+ *  @author Wenhan Jin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlphabetBenchmark {
+
+    /** Kind of alphabet: "range" (A-Z) or "extended". */
+    @Param({"range", "extended"})
+    public String kind;
+
+    /** Number of characters in extended alphabets. */
+    @Param({"26", "256", "4096"})
+    public int size;
+
+    /** The alphabet under test. */
+    private Alphabet _alphabet;
+    /** Indices looked up, in turn. */
+    private int[] _indices;
+    /** Characters looked up, in turn. */
+    private char[] _chars;
+    /** Position in _indices and _chars. */
+    private int _next;
+
+    /** Build the alphabet and its inputs. */
+    @Setup
+    public void setUp() {
+        _alphabet = kind.equals("range")
+            ? Fixtures.alphabet(Fixtures.LETTERS)
+            : new ExtendedAlphabet(Fixtures.chars(size));
+        _indices = Fixtures.indices(_alphabet.size(), Fixtures.INPUTS);
+        _chars = new char[_indices.length];
+        for (int i = 0; i < _indices.length; i += 1) {
+            _chars[i] = _alphabet.toChar(_indices[i]);
+        }
+    }
+
+    /** Look up one character's index. */
+    @Benchmark
+    public int toInt() {
+        _next = (_next + 1) & (Fixtures.INPUTS - 1);
+        return _alphabet.toInt(_chars[_next]);
+    }
+
+    /** Look up one index's character. */
+    @Benchmark
+    public char toChar() {
+        _next = (_next + 1) & (Fixtures.INPUTS - 1);
+        return _alphabet.toChar(_indices[_next]);
+    }
+}
@@ -0,0 +1,48 @@
+package enigma;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Runs the benchmarks, saving the results as JSON in a time-stamped file
+ *  under results/, so that runs can be compared over time.
+ *  @author Wenhan Jin
+ */
+public final class Benchmarks {
+
+    /** Not instantiable. */
+    private Benchmarks() {
+    }
+
+    /** Run the benchmarks selected by ARGS, which are ordinary JMH
+     *  command-line options (for example, "Machine" to run only
+     *  MachineBenchmark, or "-p alphabetSize=26" to fix a parameter).
+     *  An explicit -rff overrides the results file. */
+    public static void main(String... args)
+        throws CommandLineOptionException, RunnerException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        String stamp = LocalDateTime.now().format(STAMP);
+        File results = new File(RESULTS_DIR, "jmh-" + stamp + ".json");
+        results.getParentFile().mkdirs();
+        Options opts = new OptionsBuilder()
+            .parent(cmd)
+            .resultFormat(ResultFormatType.JSON)
+            .result(cmd.getResult().orElse(results.getPath()))
+            .build();
+        new Runner(opts).run();
+    }
+
+    /** Directory receiving results files. */
+    private static final String RESULTS_DIR = "results";
+    /** Format of the time stamps in results file names. */
+    private static final DateTimeFormatter STAMP =
+        DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+}
@@ -0,0 +1,136 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Synthetic alphabets, permutations, rotors and machines of any size for
+ *  the benchmarks.  Everything is generated from a fixed seed, so that
+ *  runs are comparable.
+ *  @author Wenhan Jin
+ */
+final class Fixtures {
+
+    /** Not instantiable. */
+    private Fixtures() {
+    }
+
+    /** Return an alphabet of SIZE characters: the upper-case letters
+     *  A-Z as a CharacterRange when SIZE is 26, and otherwise an
+     *  ExtendedAlphabet of CJK ideographs (which have no case, so that
+     *  they survive the upper-casing done on messages). */
+    static Alphabet alphabet(int size) {
+        if (size == LETTERS) {
+            return new CharacterRange('A', 'Z');
+        }
+        return new ExtendedAlphabet(chars(size));
+    }
+
+    /** Return the characters of an extended alphabet of SIZE characters. */
+    static char[] chars(int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i += 1) {
+            chars[i] = (char) (CJK + i);
+        }
+        return chars;
+    }
+
+    /** Return a random permutation of ALPHABET written as a single cycle,
+     *  using RAND. */
+    static Permutation cycle(Alphabet alphabet, Random rand) {
+        int[] order = shuffled(alphabet.size(), rand);
+        StringBuilder cycles = new StringBuilder("(");
+        for (int i : order) {
+            cycles.append(alphabet.toChar(i));
+        }
+        return new Permutation(cycles.append(')').toString(), alphabet);
+    }
+
+    /** Return a random derangement of ALPHABET made of transpositions
+     *  only, suitable for a reflector, using RAND.  The size of ALPHABET
+     *  must be even. */
+    static Permutation pairs(Alphabet alphabet, Random rand) {
+        int[] order = shuffled(alphabet.size(), rand);
+        StringBuilder cycles = new StringBuilder();
+        for (int i = 0; i + 1 < order.length; i += 2) {
+            cycles.append('(').append(alphabet.toChar(order[i]))
+                .append(alphabet.toChar(order[i + 1])).append(')');
+        }
+        return new Permutation(cycles.toString(), alphabet);
+    }
+
+    /** Return a machine over an alphabet of SIZE characters with ROTORS
+     *  slots: a reflector, one fixed rotor and ROTORS - 2 moving rotors,
+     *  each with one notch, all at setting 0 and with no plugboard. */
+    static Machine machine(int size, int rotors) {
+        Alphabet alphabet = alphabet(size);
+        Random rand = new Random(SEED);
+        ArrayList<Rotor> all = new ArrayList<>();
+        String[] names = new String[rotors];
+        names[0] = "R";
+        all.add(new Reflector("R", pairs(alphabet, rand)));
+        names[1] = "F";
+        all.add(new FixedRotor("F", cycle(alphabet, rand)));
+        for (int i = 2; i < rotors; i += 1) {
+            names[i] = "M" + i;
+            String notch = String.valueOf(alphabet.toChar(rand.nextInt(size)));
+            all.add(new MovingRotor(names[i], cycle(alphabet, rand), notch));
+        }
+        Machine m = new Machine(alphabet, rotors, rotors - 2, all);
+        m.insertRotors(names);
+        m.setRotors(setting(alphabet, rotors - 1));
+        return m;
+    }
+
+    /** Return a setting of LEN characters of ALPHABET, all its first. */
+    static String setting(Alphabet alphabet, int len) {
+        char[] setting = new char[len];
+        java.util.Arrays.fill(setting, alphabet.toChar(0));
+        return new String(setting);
+    }
+
+    /** Return a random message of LEN characters from ALPHABET. */
+    static String message(Alphabet alphabet, int len) {
+        Random rand = new Random(SEED);
+        char[] msg = new char[len];
+        for (int i = 0; i < len; i += 1) {
+            msg[i] = alphabet.toChar(rand.nextInt(alphabet.size()));
+        }
+        return new String(msg);
+    }
+
+    /** Return random indices into an alphabet of SIZE characters, COUNT
+     *  of them. */
+    static int[] indices(int size, int count) {
+        Random rand = new Random(SEED);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i += 1) {
+            result[i] = rand.nextInt(size);
+        }
+        return result;
+    }
+
+    /** Return 0 .. N-1 in a random order chosen with RAND. */
+    private static int[] shuffled(int n, Random rand) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i -= 1) {
+            int j = rand.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    /** Size of the alphabet of upper-case letters. */
+    static final int LETTERS = 26;
+    /** Number of random inputs cycled through by per-call benchmarks
+     *  (a power of two). */
+    static final int INPUTS = 1 << 10;
+    /** First character of extended alphabets. */
+    private static final char CJK = '一';
+    /** Seed for all random choices. */
+    private static final long SEED = 61;
+}
@@ -0,0 +1,83 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** One bulk step of a MachineBank against the same work done by one
+ *  Machine per lane, with and without the Vector API.
+ *  @author Wenhan Jin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MachineBankBenchmark {
+
+    /** Number of lanes (sessions). */
+    @Param({"64", "4096"})
+    public int lanes;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({"5"})
+    public int rotors;
+
+    /** Whether the bank may use the Vector API. */
+    @Param({"true", "false"})
+    public String vectors;
+
+    /** The bank under test. */
+    private MachineBank _bank;
+    /** One machine per lane, for comparison. */
+    private Machine[] _machines;
+    /** The characters converted. */
+    private int[] _chars;
+
+    /** Build the bank, the machines and the characters. */
+    @Setup
+    public void setUp() {
+        System.setProperty("enigma.vectors", vectors);
+        Machine config = Fixtures.machine(Fixtures.LETTERS, rotors);
+        _bank = new MachineBank(config, lanes);
+        _machines = new Machine[lanes];
+        Random rand = new Random(lanes);
+        for (int lane = 0; lane < lanes; lane += 1) {
+            Machine m = config.copy();
+            for (int i = 1; i < rotors; i += 1) {
+                m.setPosition(i, rand.nextInt(Fixtures.LETTERS));
+            }
+            _machines[lane] = m;
+            _bank.load(lane, m);
+        }
+        _chars = Fixtures.indices(Fixtures.LETTERS, lanes);
+    }
+
+    /** Convert one character in every lane of the bank. */
+    @Benchmark
+    public int[] bank() {
+        _bank.convert(_chars, _chars);
+        return _chars;
+    }
+
+    /** Convert one character on each of the machines. */
+    @Benchmark
+    public int[] machines() {
+        for (int lane = 0; lane < lanes; lane += 1) {
+            _chars[lane] = _machines[lane].convert(_chars[lane]);
+        }
+        return _chars;
+    }
+}
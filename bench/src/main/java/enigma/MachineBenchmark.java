@@ -0,0 +1,96 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Whole-machine conversions: single characters, String messages and
+ *  char arrays (one character at a time and in blocks), over varying
+ *  alphabet sizes, numbers of rotors and message lengths.  Block
+ *  conversion uses the Vector API unless run with
+ *  -jvmArgsAppend -Denigma.vectors=false.
+ *  @author Wenhan Jin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MachineBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({"26", "256"})
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector. */
+    @Param({"3", "5", "8"})
+    public int rotors;
+
+    /** Number of characters in each message. */
+    @Param({"100", "100000"})
+    public int messageLength;
+
+    /** The machine under test. */
+    private Machine _machine;
+    /** Indices converted, in turn, by convertInt. */
+    private int[] _indices;
+    /** Position in _indices. */
+    private int _next;
+    /** The message converted. */
+    private String _message;
+    /** The characters of _message. */
+    private char[] _chars;
+    /** Destination of array conversions. */
+    private char[] _dest;
+
+    /** Build the machine and its inputs. */
+    @Setup
+    public void setUp() {
+        _machine = Fixtures.machine(alphabetSize, rotors);
+        _indices = Fixtures.indices(alphabetSize, Fixtures.INPUTS);
+        _message = Fixtures.message(_machine.alphabet(), messageLength);
+        _chars = _message.toCharArray();
+        _dest = new char[_chars.length];
+    }
+
+    /** Convert one character index (independent of messageLength). */
+    @Benchmark
+    public int convertInt() {
+        _next = (_next + 1) & (Fixtures.INPUTS - 1);
+        return _machine.convert(_indices[_next]);
+    }
+
+    /** Convert a whole message given as a String. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String convertString() {
+        return _machine.convert(_message);
+    }
+
+    /** Convert a whole message given as a char array, in blocks. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public char[] convertBlock() {
+        _machine.convertBlock(_chars, 0, _dest, 0, _chars.length);
+        return _dest;
+    }
+
+    /** Convert a whole message given as a char array. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public char[] convertChars() {
+        _machine.convert(_chars, 0, _dest, 0, _chars.length);
+        return _dest;
+    }
+}
@@ -0,0 +1,114 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The whole program, file to file: reading the naval configuration,
+ *  parsing settings lines and converting and formatting messages.
+ *  @author Wenhan Jin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MainBenchmark {
+
+    /** Total number of message characters in the input. */
+    @Param({"10000", "1000000", "30000000"})
+    public int messageLength;
+
+    /** Number of messages (each with its own settings line) the input
+     *  is divided into. */
+    @Param({"1", "1000"})
+    public int messages;
+
+    /** Options passed before the file names ("" for none). */
+    @Param({"", "--parallel"})
+    public String options;
+
+    /** Directory holding the files. */
+    private Path _dir;
+    /** The command-line arguments. */
+    private String[] _args;
+
+    /** Write the configuration and input files. */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("enigma-bench");
+        Path conf = _dir.resolve("default.conf");
+        Path input = _dir.resolve("input.inp");
+        Files.write(conf, CONFIG.getBytes(StandardCharsets.US_ASCII));
+        String msg = Fixtures.message(Fixtures.alphabet(Fixtures.LETTERS),
+                                      messageLength);
+        StringBuilder text = new StringBuilder(msg.length() + 64 * messages);
+        int per = (messageLength + messages - 1) / messages;
+        for (int i = 0; i < msg.length(); i += per) {
+            text.append(SETTINGS).append('\n')
+                .append(msg, i, Math.min(i + per, msg.length()))
+                .append('\n');
+        }
+        Files.write(input, text.toString().getBytes(StandardCharsets.US_ASCII));
+        String files = conf + " " + input + " " + _dir.resolve("output.out");
+        _args = (options + " " + files).trim().split(" ");
+    }
+
+    /** Remove the files. */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(_dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException excp) {
+                    throw new UncheckedIOException(excp);
+                }
+            });
+        }
+    }
+
+    /** Run the program once over the input. */
+    @Benchmark
+    public void run() {
+        Main.main(_args);
+    }
+
+    /** The naval configuration. */
+    private static final String CONFIG =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n"
+        + "5 3\n"
+        + "I MQ      (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + "II ME     (FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)\n"
+        + "III MV    (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + "IV MJ     (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)\n"
+        + "V MZ      (AVOLDRWFIZCNGBJKHMQSUPXET) (Y)\n"
+        + "Beta N    (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + "Gamma N   (AFNIRLBSQWVXGUZDKMTPCOYJHE)\n"
+        + "B R       (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "          (RX) (SZ) (TV)\n";
+
+    /** The settings line starting each message. */
+    private static final String SETTINGS =
+        "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)";
+}
@@ -0,0 +1,78 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Permutation lookups, and construction from cycle notation, for
+ *  alphabets of various sizes.
+ *  @author Wenhan Jin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermutationBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({"26", "256", "4096"})
+    public int size;
+
+    /** The permutation under test. */
+    private Permutation _perm;
+    /** Its alphabet. */
+    private Alphabet _alphabet;
+    /** Its cycle notation. */
+    private String _cycles;
+    /** Indices permuted, in turn. */
+    private int[] _indices;
+    /** Position in _indices. */
+    private int _next;
+
+    /** Build the permutation and its inputs. */
+    @Setup
+    public void setUp() {
+        _alphabet = Fixtures.alphabet(size);
+        _perm = Fixtures.cycle(_alphabet, new Random(size));
+        StringBuilder cycles = new StringBuilder("(");
+        for (int i = 0; i < size; i += 1) {
+            cycles.append(_alphabet.toChar(_perm.permute(i)));
+        }
+        _cycles = cycles.append(')').toString();
+        _indices = Fixtures.indices(size, Fixtures.INPUTS);
+    }
+
+    /** Permute one index. */
+    @Benchmark
+    public int permute() {
+        _next = (_next + 1) & (Fixtures.INPUTS - 1);
+        return _perm.permute(_indices[_next]);
+    }
+
+    /** Invert one index. */
+    @Benchmark
+    public int invert() {
+        _next = (_next + 1) & (Fixtures.INPUTS - 1);
+        return _perm.invert(_indices[_next]);
+    }
+
+    /** Parse the cycle notation of a whole permutation. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Permutation parse() {
+        return new Permutation(_cycles, _alphabet);
+    }
+}
@@ -0,0 +1,74 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Rotor conversions, forward and backward, at changing settings, for
+ *  alphabets of various sizes (which switch between table lookup and
+ *  arithmetic on the permutation).
+ *  @author Wenhan Jin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotorBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({"26", "256", "4096"})
+    public int size;
+
+    /** The rotor under test. */
+    private Rotor _rotor;
+    /** Indices converted, in turn. */
+    private int[] _indices;
+    /** Position in _indices. */
+    private int _next;
+    /** Position of the rotor. */
+    private int _posn;
+
+    /** Build the rotor and its inputs. */
+    @Setup
+    public void setUp() {
+        Alphabet alphabet = Fixtures.alphabet(size);
+        _rotor = new MovingRotor("M", Fixtures.cycle(alphabet,
+                                                     new Random(size)),
+                                 String.valueOf(alphabet.toChar(0)));
+        _indices = Fixtures.indices(size, Fixtures.INPUTS);
+    }
+
+    /** Advance the rotor and convert one index forward. */
+    @Benchmark
+    public int convertForward() {
+        _next = (_next + 1) & (Fixtures.INPUTS - 1);
+        advance();
+        return _rotor.convertForward(_indices[_next], _posn);
+    }
+
+    /** Advance the rotor and convert one index backward. */
+    @Benchmark
+    public int convertBackward() {
+        _next = (_next + 1) & (Fixtures.INPUTS - 1);
+        advance();
+        return _rotor.convertBackward(_indices[_next], _posn);
+    }
+
+    /** Move the rotor to its next position. */
+    private void advance() {
+        _posn = _posn + 1 == size ? 0 : _posn + 1;
+    }
+}
@@ -1,5 +1,9 @@
 package enigma;
 
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
 /** An alphabet of encodable characters.  Provides a mapping from characters
  *  to and from indices into the alphabet.
  *  @author P. N. Hilfinger
@@ -20,4 +24,22 @@ abstract class Alphabet {
      *  the alphabet. This is the inverse of toChar(). */
     abstract int toInt(char ch);
 
+    /** Returns the indices of the non-blank characters of TEXT, taken in
+     *  upper case, all of which must be in the alphabet. */
+    int[] indices(String text) {
+        int[] result = new int[text.length()];
+        int len = 0;
+        for (int i = 0; i < text.length(); i += 1) {
+            char c = Character.toUpperCase(text.charAt(i));
+            if (c != ' ') {
+                if (!contains(c)) {
+                    throw error("character %c not in alphabet", c);
+                }
+                result[len] = toInt(c);
+                len += 1;
+            }
+        }
+        return Arrays.copyOf(result, len);
+    }
+
 }
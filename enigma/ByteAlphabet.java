@@ -0,0 +1,43 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** An alphabet of the 256 byte values, whose characters are those
+ *  numbered 0 to 255, so that the character of each byte value, and its
+ *  index, is the value itself.  Unlike a CharacterRange over the same
+ *  characters, it does not fold case.
+ *  @author Wenhan Jin
+ */
+class ByteAlphabet extends Alphabet {
+
+    @Override
+    int size() {
+        return SIZE;
+    }
+
+    @Override
+    boolean contains(char ch) {
+        return ch < SIZE;
+    }
+
+    @Override
+    char toChar(int index) {
+        if (index < 0 || index >= SIZE) {
+            throw error("character index out of range");
+        }
+        return (char) index;
+    }
+
+    @Override
+    int toInt(char ch) {
+        if (ch >= SIZE) {
+            throw error("character out of range");
+        }
+        return ch;
+    }
+
+    /** Number of byte values. */
+    static final int SIZE = 256;
+    /** The name of this alphabet in configuration files. */
+    static final String NAME = "0x00-0xFF";
+}
@@ -0,0 +1,220 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import static enigma.EnigmaException.*;
+
+/** Reading and writing of compiled machine configurations.  A compiled
+ *  configuration is a binary image of a configuration file that can be
+ *  loaded without any parsing: after a magic number (whose first byte,
+ *  0x89, starts no text file in ASCII or UTF-8, so that no plain
+ *  configuration is mistaken for a compiled one) and a format version,
+ *  it holds the alphabet (a range, a list of characters, or the byte
+ *  alphabet), the number of rotor slots and pawls, and for each rotor
+ *  its name, kind, notches and wiring, the wiring being the rotor's
+ *  permutation as a table of indices (one byte per entry for
+ *  alphabets of up to 256 characters, two otherwise).  All numbers are
+ *  big-endian.
+ *  @author Wenhan Jin
+ */
+class CompiledConfig {
+
+    /** Return true iff the file open on CHANNEL starts with the magic
+     *  number of a compiled configuration. */
+    static boolean isCompiled(FileChannel channel) {
+        try {
+            ByteBuffer head = ByteBuffer.allocate(Integer.BYTES);
+            while (head.hasRemaining()
+                   && channel.read(head, head.position()) > 0) {
+                continue;
+            }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        } catch (IOException excp) {
+            throw error("could not read configuration: %s",
+                        excp.getMessage());
+        }
+    }
+
+    /** Return the machine described by the compiled configuration in the
+     *  file open on CHANNEL, mapping the file into memory to read it. */
+    static Machine read(FileChannel channel) {
+        ByteBuffer in;
+        try {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                             channel.size());
+        } catch (IOException excp) {
+            throw error("could not read configuration: %s",
+                        excp.getMessage());
+        }
+        try {
+            if (in.getInt() != MAGIC) {
+                throw error("not a compiled configuration");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw error("unsupported compiled configuration version %d",
+                            version);
+            }
+            Alphabet alphabet;
+            byte alphabetKind = in.get();
+            if (alphabetKind == RANGE) {
+                alphabet = new CharacterRange(in.getChar(), in.getChar());
+            } else if (alphabetKind == BYTES) {
+                alphabet = new ByteAlphabet();
+            } else if (alphabetKind == LIST) {
+                alphabet = new ExtendedAlphabet(getString(in).toCharArray());
+            } else {
+                throw error("corrupt compiled configuration");
+            }
+            int numRotors = in.getInt();
+            int pawls = in.getInt();
+            int count = in.getInt();
+            if (numRotors <= 1 || pawls < 0 || pawls >= numRotors
+                || count < 0) {
+                throw error("corrupt compiled configuration");
+            }
+            long rotorBytes = 1 + 2 * Integer.BYTES + (long) alphabet.size()
+                * (alphabet.size() <= BYTE_LIMIT ? 1 : 2);
+            if (count > in.remaining() / rotorBytes) {
+                throw error("compiled configuration truncated");
+            }
+            ArrayList<Rotor> rotors = new ArrayList<>(count);
+            int[] mapping = new int[alphabet.size()];
+            for (int k = 0; k < count; k += 1) {
+                String name = getString(in);
+                byte kind = in.get();
+                String notches = getString(in);
+                for (int i = 0; i < mapping.length; i += 1) {
+                    mapping[i] = mapping.length <= BYTE_LIMIT
+                        ? in.get() & BYTE_MASK : in.getChar();
+                }
+                Permutation perm = new Permutation(mapping, alphabet);
+                if (kind == MOVING) {
+                    rotors.add(new MovingRotor(name, perm, notches));
+                } else if (kind == REFLECTOR) {
+                    rotors.add(new Reflector(name, perm));
+                } else if (kind == FIXED) {
+                    rotors.add(new FixedRotor(name, perm));
+                } else {
+                    throw error("corrupt compiled configuration");
+                }
+            }
+            return new Machine(alphabet, numRotors, pawls, rotors);
+        } catch (BufferUnderflowException excp) {
+            throw error("compiled configuration truncated");
+        }
+    }
+
+    /** Write the configuration of M, with all its available rotors, to
+     *  the file open on CHANNEL in compiled form. */
+    static void write(Machine m, FileChannel channel) {
+        Alphabet alphabet = m.alphabet();
+        int n = alphabet.size();
+        ArrayList<Rotor> rotors = new ArrayList<>(m.allRotors());
+        long size = HEADER_BYTES + 2L * n;
+        for (Rotor r : rotors) {
+            size += 1 + 2 * Integer.BYTES
+                + 2L * (r.name().length() + notches(r).length())
+                + (long) n * (n <= BYTE_LIMIT ? 1 : 2);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw error("configuration too large to compile");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).putInt(VERSION);
+        if (alphabet instanceof CharacterRange) {
+            out.put(RANGE).putChar(alphabet.toChar(0))
+                .putChar(alphabet.toChar(n - 1));
+        } else if (alphabet instanceof ByteAlphabet) {
+            out.put(BYTES);
+        } else {
+            char[] chars = new char[n];
+            for (int i = 0; i < n; i += 1) {
+                chars[i] = alphabet.toChar(i);
+            }
+            out.put(LIST);
+            putString(out, new String(chars));
+        }
+        out.putInt(m.numRotors()).putInt(m.numPawls()).putInt(rotors.size());
+        for (Rotor r : rotors) {
+            putString(out, r.name());
+            if (r.reflecting()) {
+                out.put(REFLECTOR);
+            } else if (r.rotates()) {
+                out.put(MOVING);
+            } else {
+                out.put(FIXED);
+            }
+            putString(out, notches(r));
+            Permutation perm = r.permutation();
+            for (int i = 0; i < n; i += 1) {
+                if (n <= BYTE_LIMIT) {
+                    out.put((byte) perm.permute(i));
+                } else {
+                    out.putChar((char) perm.permute(i));
+                }
+            }
+        }
+        out.flip();
+        try {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        } catch (IOException excp) {
+            throw error("could not write compiled configuration: %s",
+                        excp.getMessage());
+        }
+    }
+
+    /** Return the notches of R, or "" if it has none. */
+    private static String notches(Rotor r) {
+        if (r instanceof MovingRotor) {
+            return ((MovingRotor) r).notches();
+        }
+        return "";
+    }
+
+    /** Write S to OUT as its length followed by its characters. */
+    private static void putString(ByteBuffer out, String s) {
+        out.putInt(s.length());
+        for (int i = 0; i < s.length(); i += 1) {
+            out.putChar(s.charAt(i));
+        }
+    }
+
+    /** Return the next string (as written by putString) from IN. */
+    private static String getString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0 || len > in.remaining() / 2) {
+            throw error("compiled configuration truncated");
+        }
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i += 1) {
+            chars[i] = in.getChar();
+        }
+        return new String(chars);
+    }
+
+    /** The first four bytes of a compiled configuration: 0x89 followed
+     *  by "Eng". */
+    static final int MAGIC = 0x89456E67;
+    /** The version of the format written. */
+    static final int VERSION = 1;
+
+    /** Upper bound on the bytes written before the rotors, apart from
+     *  the characters of the alphabet. */
+    private static final int HEADER_BYTES = 6 * Integer.BYTES + 1;
+
+    /** Alphabet kinds. */
+    private static final byte RANGE = 0, LIST = 1, BYTES = 2;
+    /** Rotor kinds. */
+    private static final byte MOVING = 'M', FIXED = 'N', REFLECTOR = 'R';
+    /** Largest alphabet whose wiring is written one byte per entry. */
+    private static final int BYTE_LIMIT = 1 << 8;
+    /** Mask recovering an unsigned index from a byte. */
+    private static final int BYTE_MASK = 0xFF;
+}
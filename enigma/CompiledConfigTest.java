@@ -0,0 +1,156 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/** The suite of all JUnit tests for the CompiledConfig class.
+ *  @author Wenhan Jin
+ */
+public class CompiledConfigTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return the machine read back after compiling M into a temporary
+     *  file. */
+    private static Machine roundTrip(Machine m) throws IOException {
+        Path file = Files.createTempFile("enigma", ".enigc");
+        try {
+            try (FileChannel out = FileChannel.open(file,
+                     StandardOpenOption.WRITE)) {
+                CompiledConfig.write(m, out);
+            }
+            try (FileChannel in = FileChannel.open(file)) {
+                assertTrue(CompiledConfig.isCompiled(in));
+                return CompiledConfig.read(in);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Return the message of the error raised by reading the compiled
+     *  form of M with the bytes at OFFSET replaced by PATCH, or null if
+     *  it is read without error. */
+    private static String readPatched(Machine m, int offset, byte... patch)
+        throws IOException {
+        Path file = Files.createTempFile("enigma", ".enigc");
+        try {
+            try (FileChannel out = FileChannel.open(file,
+                     StandardOpenOption.WRITE)) {
+                CompiledConfig.write(m, out);
+            }
+            byte[] data = Files.readAllBytes(file);
+            System.arraycopy(patch, 0, data, offset, patch.length);
+            Files.write(file, data);
+            try (FileChannel in = FileChannel.open(file)) {
+                CompiledConfig.read(in);
+                return null;
+            } catch (EnigmaException excp) {
+                return excp.getMessage();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Return the four big-endian bytes of N. */
+    private static byte[] bytes(int n) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(n).array();
+    }
+
+    @Test
+    public void checkNavalRoundTrip() throws IOException {
+        Machine original = MachineTest.navalMachine("AXLE", "B", "Beta",
+                                                    "III", "IV", "I");
+        Machine copy = roundTrip(original);
+        assertEquals(5, copy.numRotors());
+        assertEquals(3, copy.numPawls());
+        assertEquals(original.allRotors().size(), copy.allRotors().size());
+        copy.insertRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+        copy.setRotors("AXLE");
+        String msg = "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOOD";
+        assertEquals(original.convert(msg), copy.convert(msg));
+    }
+
+    @Test
+    public void checkExtendedAlphabet() throws IOException {
+        char[] chars = new char[300];
+        for (int i = 0; i < chars.length; i += 1) {
+            chars[i] = (char) ('\u0400' + i);
+        }
+        Alphabet big = new ExtendedAlphabet(chars);
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("R", new Permutation(
+                "(" + chars[0] + chars[299] + ")", big)));
+        rotors.add(new MovingRotor("M", new Permutation(
+                "(" + chars[5] + chars[6] + chars[7] + ")", big),
+                String.valueOf(chars[2])));
+        Machine copy = roundTrip(new Machine(big, 2, 1, rotors));
+        assertEquals(300, copy.alphabet().size());
+        assertEquals(chars[299], copy.alphabet().toChar(299));
+        for (Rotor r : copy.allRotors()) {
+            if (r.rotates()) {
+                assertEquals(String.valueOf(chars[2]),
+                             ((MovingRotor) r).notches());
+                assertEquals(7, r.permutation().permute(6));
+            } else {
+                assertTrue(r.reflecting());
+                assertEquals(0, r.permutation().permute(299));
+            }
+        }
+    }
+
+    @Test
+    public void checkCorrupt() throws IOException {
+        Machine m = MachineTest.navalMachine("AXLE", "B", "Beta",
+                                             "III", "IV", "I");
+        String corrupt = "corrupt compiled configuration";
+        assertNull(readPatched(m, 0));
+        assertEquals(corrupt, readPatched(m, ALPHABET_KIND, (byte) 7));
+        assertEquals(corrupt, readPatched(m, NUM_ROTORS, bytes(1)));
+        assertEquals(corrupt, readPatched(m, PAWLS, bytes(-1)));
+        assertEquals(corrupt, readPatched(m, PAWLS, bytes(5)));
+        assertEquals(corrupt, readPatched(m, COUNT, bytes(-1)));
+        assertEquals("compiled configuration truncated",
+                     readPatched(m, COUNT, bytes(Integer.MAX_VALUE)));
+        String name = new ArrayList<>(m.allRotors()).get(0).name();
+        int kind = COUNT + 2 * Integer.BYTES + 2 * name.length();
+        assertEquals(corrupt, readPatched(m, kind, (byte) 'X'));
+    }
+
+    @Test
+    public void checkTextStartingWithMagic() throws IOException {
+        Path file = Files.createTempFile("enigma", ".conf");
+        try {
+            Files.write(file, ("EnigABCD 2 1\n R R (EA)(nB)\n"
+                               + " M MA (igCD)\n").getBytes("UTF-8"));
+            try (FileChannel in = FileChannel.open(file)) {
+                assertFalse(CompiledConfig.isCompiled(in));
+            }
+            Machine m = Main.loadConfig(file.toString());
+            assertEquals(8, m.alphabet().size());
+            assertEquals(2, m.allRotors().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Offsets in the compiled form of a machine whose alphabet is a
+     *  range of characters. */
+    private static final int ALPHABET_KIND = 2 * Integer.BYTES,
+        NUM_ROTORS = ALPHABET_KIND + 1 + 2 * Character.BYTES,
+        PAWLS = NUM_ROTORS + Integer.BYTES,
+        COUNT = PAWLS + Integer.BYTES;
+}
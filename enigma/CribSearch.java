@@ -0,0 +1,424 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** A known-plaintext (crib) attack on a machine configuration, in the
+ *  manner of the Turing-Welchman bombe.  The crib and the ciphertext
+ *  letters under it form a menu: each position I links crib letter P to
+ *  cipher letter C, and for the right key the plugboard S satisfies
+ *  S(C) = E_I(S(P)), where E_I is the scrambler (the machine without
+ *  its plugboard) at keypress I.  For every rotor order and starting
+ *  position, the search assumes a plugboard partner for the most
+ *  connected letter of each part of the menu and follows the links,
+ *  abandoning the assumption as soon as some letter would need two
+ *  different partners.  Positions for which some assumption survives are
+ *  reported as candidate keys, with the plugboard pairs deduced.  The
+ *  plugboard is taken to consist of swapped pairs, as on the real
+ *  machine.  The positions are divided among the threads of a
+ *  ForkJoinPool, each with its own Machine (and so its own rotor
+ *  positions) sharing the configuration's rotors.
+ *  @author Wenhan Jin
+ */
+class CribSearch {
+
+    /** Search for keys of CONFIG that encrypt CRIB to the letters of
+     *  CIPHERTEXT starting at OFFSET (counting letters only).  Blanks in
+     *  CIPHERTEXT and CRIB are ignored and letters are taken in upper
+     *  case, as by Machine.convert. */
+    CribSearch(Machine config, String ciphertext, String crib, int offset) {
+        _config = config;
+        _alphabet = config.alphabet();
+        _size = _alphabet.size();
+        _slots = config.numRotors();
+        int[] cipher = _alphabet.indices(ciphertext);
+        int[] plain = _alphabet.indices(crib);
+        if (plain.length == 0) {
+            throw error("empty crib");
+        }
+        if (offset < 0 || offset > cipher.length - plain.length) {
+            throw error("crib does not fit in the ciphertext at offset %d",
+                        offset);
+        }
+        _offset = offset;
+        _length = plain.length;
+        _keys = new KeySpace(config);
+        buildMenu(plain, Arrays.copyOfRange(cipher, offset,
+                                            offset + plain.length));
+    }
+
+    /** Build the menu linking PLAIN[I] to CIPHER[I] for each I, and
+     *  choose the letters whose partners are assumed. */
+    private void buildMenu(int[] plain, int[] cipher) {
+        int n = _size;
+        _edgeStart = new int[n + 1];
+        for (int i = 0; i < _length; i += 1) {
+            _edgeStart[plain[i] + 1] += 1;
+            _edgeStart[cipher[i] + 1] += 1;
+        }
+        for (int x = 0; x < n; x += 1) {
+            _edgeStart[x + 1] += _edgeStart[x];
+        }
+        int[] fill = Arrays.copyOf(_edgeStart, n);
+        _edgeStep = new int[2 * _length];
+        _edgeOther = new int[2 * _length];
+        _edgeForward = new boolean[2 * _length];
+        int[] root = new int[n];
+        for (int x = 0; x < n; x += 1) {
+            root[x] = x;
+        }
+        for (int i = 0; i < _length; i += 1) {
+            int p = plain[i], c = cipher[i];
+            int e = fill[p]++;
+            _edgeStep[e] = i;
+            _edgeOther[e] = c;
+            _edgeForward[e] = true;
+            e = fill[c]++;
+            _edgeStep[e] = i;
+            _edgeOther[e] = p;
+            root[find(root, p)] = find(root, c);
+        }
+        int[] best = new int[n];
+        Arrays.fill(best, -1);
+        for (int x = 0; x < n; x += 1) {
+            int degree = _edgeStart[x + 1] - _edgeStart[x];
+            int r = find(root, x);
+            if (degree > 0 && (best[r] < 0 || degree > degree(best[r]))) {
+                best[r] = x;
+            }
+        }
+        int count = 0;
+        for (int r = 0; r < n; r += 1) {
+            if (best[r] >= 0) {
+                best[count] = best[r];
+                count += 1;
+            }
+        }
+        _tests = Arrays.copyOf(best, count);
+    }
+
+    /** Return the representative of X's set in the union-find forest
+     *  ROOT. */
+    private static int find(int[] root, int x) {
+        while (root[x] != x) {
+            root[x] = root[root[x]];
+            x = root[x];
+        }
+        return x;
+    }
+
+    /** Return the number of menu links at letter X. */
+    private int degree(int x) {
+        return _edgeStart[x + 1] - _edgeStart[x];
+    }
+
+    /** Return the number of keys (rotor orders times starting positions)
+     *  to be tested. */
+    long keys() {
+        return _keys.size();
+    }
+
+    /** Test every key, on POOL, and return the candidates found (at
+     *  most MAX_CANDIDATES of them). */
+    SearchResult run(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        SearchResult result = pool.invoke(new Search(_keys.spliterator()));
+        result.nanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /** A task testing a range of keys (see KeySpace). */
+    private class Search extends RecursiveTask<SearchResult> {
+
+        /** A task for the keys of RANGE. */
+        Search(Spliterator.OfLong range) {
+            _range = range;
+        }
+
+        @Override
+        protected SearchResult compute() {
+            if (_range.estimateSize() > LEAF_KEYS) {
+                Spliterator.OfLong prefix = _range.trySplit();
+                if (prefix != null) {
+                    Search left = new Search(prefix);
+                    left.fork();
+                    SearchResult result = compute();
+                    result.merge(left.join());
+                    return result;
+                }
+            }
+            return new Worker().test(_range);
+        }
+
+        /** Keys still to be tested or handed on. */
+        private final Spliterator.OfLong _range;
+    }
+
+    /** The state of one thread's search: its own machine and scratch
+     *  space, reused for every key it tests. */
+    private class Worker {
+
+        /** Test the keys of RANGE and return the candidates found. */
+        SearchResult test(Spliterator.OfLong range) {
+            SearchResult result = new SearchResult(MAX_CANDIDATES);
+            result.tested(range.estimateSize());
+            range.forEachRemaining((long key) -> {
+                int order = _keys.order(key);
+                if (order != _order) {
+                    _order = order;
+                    setOrder(_keys.rotors(order));
+                }
+                if (test(key)) {
+                    result.add(candidate(key));
+                }
+            });
+            return result;
+        }
+
+        /** Insert the rotors named NAMES in my machine. */
+        private void setOrder(String[] names) {
+            _machine.insertRotors(names);
+            Rotor[] rotors = _machine.rotorsl();
+            for (int j = 0; j < _slots; j += 1) {
+                Permutation perm = rotors[j].permutation();
+                _fwd[j] = perm.forwardTable();
+                _inv[j] = perm.inverseTable();
+            }
+        }
+
+        /** Return true iff some plugboard is consistent with the menu
+         *  for KEY, whose order is inserted in my machine. */
+        private boolean test(long key) {
+            _keys.setRotors(_machine, key);
+            _machine.advance(_offset);
+            for (int i = 0; i < _length; i += 1) {
+                _machine.advance(1);
+                for (int j = 0; j < _slots; j += 1) {
+                    _pos[i * _slots + j] = _machine.position(j);
+                }
+            }
+            Arrays.fill(_scrambled, -1);
+            Arrays.fill(_unscrambled, -1);
+            Arrays.fill(_plug, -1);
+            _trailLen = 0;
+            return solve(0);
+        }
+
+        /** Return true iff partners can be found for _tests[K] and the
+         *  later test letters consistent with the current assumptions,
+         *  leaving them in _plug if so. */
+        private boolean solve(int k) {
+            if (k == _tests.length) {
+                return true;
+            }
+            int t = _tests[k];
+            if (_plug[t] >= 0) {
+                return solve(k + 1);
+            }
+            for (int v = 0; v < _size; v += 1) {
+                int mark = _trailLen;
+                if (assign(t, v) && propagate(mark) && solve(k + 1)) {
+                    return true;
+                }
+                while (_trailLen > mark) {
+                    _trailLen -= 1;
+                    _plug[_trail[_trailLen]] = -1;
+                }
+            }
+            return false;
+        }
+
+        /** Record that X and Y are plugboard partners.  Return false if
+         *  that contradicts what is already known. */
+        private boolean assign(int x, int y) {
+            if (_plug[x] == y) {
+                return true;
+            }
+            if (_plug[x] >= 0 || _plug[y] >= 0) {
+                return false;
+            }
+            _plug[x] = y;
+            _plug[y] = x;
+            _trail[_trailLen] = x;
+            _trailLen += 1;
+            if (y != x) {
+                _trail[_trailLen] = y;
+                _trailLen += 1;
+            }
+            return true;
+        }
+
+        /** Follow the menu links from every letter whose partner was
+         *  found since trail entry FROM, returning false on a
+         *  contradiction. */
+        private boolean propagate(int from) {
+            for (int q = from; q < _trailLen; q += 1) {
+                int x = _trail[q];
+                int a = _plug[x];
+                for (int e = _edgeStart[x]; e < _edgeStart[x + 1]; e += 1) {
+                    int i = _edgeStep[e];
+                    int b = _edgeForward[e] ? scramble(i, a)
+                        : unscramble(i, a);
+                    if (!assign(_edgeOther[e], b)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Return E_I(A), computing it if needed. */
+        private int scramble(int i, int a) {
+            int k = i * _size;
+            int b = _scrambled[k + a];
+            if (b < 0) {
+                b = through(i, a, _fwd[0]);
+                _scrambled[k + a] = b;
+                _unscrambled[k + b] = a;
+            }
+            return b;
+        }
+
+        /** Return the inverse of E_I applied to B, computing it if
+         *  needed. */
+        private int unscramble(int i, int b) {
+            int k = i * _size;
+            int a = _unscrambled[k + b];
+            if (a < 0) {
+                a = through(i, b, _inv[0]);
+                _unscrambled[k + b] = a;
+                _scrambled[k + a] = b;
+            }
+            return a;
+        }
+
+        /** Return the result of passing C through the rotors at keypress
+         *  I, right to left, then REFLECTOR (the first slot's wiring or
+         *  its inverse), then the rotors left to right. */
+        private int through(int i, int c, int[] reflector) {
+            int base = i * _slots;
+            for (int j = _slots - 1; j >= 1; j -= 1) {
+                c = wire(_fwd[j], c, _pos[base + j]);
+            }
+            c = wire(reflector, c, _pos[base]);
+            for (int j = 1; j < _slots; j += 1) {
+                c = wire(_inv[j], c, _pos[base + j]);
+            }
+            return c;
+        }
+
+        /** Return the result of passing C through WIRING at position
+         *  S. */
+        private int wire(int[] wiring, int c, int s) {
+            int n = _size;
+            int p = c + s;
+            if (p >= n) {
+                p -= n;
+            }
+            int r = wiring[p] - s;
+            return r < 0 ? r + n : r;
+        }
+
+        /** Return the candidate for KEY, with the plugboard pairs now in
+         *  _plug. */
+        private SearchResult.Candidate candidate(long key) {
+            StringBuilder plugboard = new StringBuilder();
+            for (int x = 0; x < _size; x += 1) {
+                if (_plug[x] > x) {
+                    if (plugboard.length() > 0) {
+                        plugboard.append(' ');
+                    }
+                    plugboard.append('(').append(_alphabet.toChar(x))
+                        .append(_alphabet.toChar(_plug[x])).append(')');
+                }
+            }
+            return new SearchResult.Candidate(
+                _keys.rotors(_keys.order(key)).clone(), _keys.setting(key),
+                plugboard.toString(), 0);
+        }
+
+        /** The order inserted in my machine, or -1. */
+        private int _order = -1;
+        /** My own machine, whose state no other worker shares. */
+        private final Machine _machine = _config.copyConfig();
+        /** Wiring tables of the rotor in each slot, and their inverses. */
+        private final int[][] _fwd = new int[_slots][],
+            _inv = new int[_slots][];
+        /** Position of the rotor in each slot at each crib keypress. */
+        private final int[] _pos = new int[_length * _slots];
+        /** E_I(A) at I * _size + A, or -1 if not yet computed. */
+        private final int[] _scrambled = new int[_length * _size];
+        /** The inverse of E_I at B at I * _size + B, or -1. */
+        private final int[] _unscrambled = new int[_length * _size];
+        /** Plugboard partner of each letter, or -1 if unknown. */
+        private final int[] _plug = new int[_size];
+        /** Letters whose partners have been assumed or deduced, in
+         *  order. */
+        private final int[] _trail = new int[_size];
+        /** Number of letters in _trail. */
+        private int _trailLen;
+    }
+
+    /** Find keys for the ciphertext and crib given by ARGS: ARGS[0]
+     *  names a configuration file, ARGS[1] is the ciphertext, ARGS[2]
+     *  the crib and ARGS[3], if present, the offset of the crib in the
+     *  ciphertext (0 by default).  Prints each candidate key as a
+     *  settings line, followed by the number of keys tested and the rate
+     *  at which they were tested.  Exits with code 1 on errors. */
+    public static void main(String... args) {
+        Main.tool(() -> {
+            if (args.length < 3 || args.length > 4) {
+                throw error("usage: CONFIG CIPHERTEXT CRIB [OFFSET]");
+            }
+            CribSearch search =
+                new CribSearch(Main.loadConfig(args[0]), args[1], args[2],
+                               Main.intArg(args, 3, 0, "offset"));
+            SearchResult result = search.run(ForkJoinPool.commonPool());
+            for (SearchResult.Candidate c : result.candidates()) {
+                System.out.println(c);
+            }
+            if (result.found() > result.candidates().size()) {
+                System.out.printf("(%d more candidates not shown)%n",
+                                  result.found()
+                                  - result.candidates().size());
+            }
+            System.out.println(result.summary());
+        });
+    }
+
+    /** Most candidates kept by a search. */
+    static final int MAX_CANDIDATES = 1000;
+    /** Largest number of keys tested by one task without splitting. */
+    private static final long LEAF_KEYS = 1 << 12;
+
+    /** The configuration searched. */
+    private final Machine _config;
+    /** Its alphabet. */
+    private final Alphabet _alphabet;
+    /** Size of _alphabet. */
+    private final int _size;
+    /** Number of rotor slots. */
+    private final int _slots;
+    /** Number of letters before the crib. */
+    private final int _offset;
+    /** Number of letters in the crib. */
+    private final int _length;
+    /** The keys searched. */
+    private final KeySpace _keys;
+    /** The menu links at letter X are _edgeStart[X] to
+     *  _edgeStart[X + 1] - 1. */
+    private int[] _edgeStart;
+    /** The crib position of each link. */
+    private int[] _edgeStep;
+    /** The letter at the other end of each link. */
+    private int[] _edgeOther;
+    /** True for links from a crib letter to its cipher letter, false for
+     *  the reverse. */
+    private boolean[] _edgeForward;
+    /** The letter whose partner is assumed in each part of the menu. */
+    private int[] _tests;
+}
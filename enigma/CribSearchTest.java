@@ -0,0 +1,114 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CribSearch class.
+ *  @author Wenhan Jin
+ */
+public class CribSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /** Return a four-slot machine whose available rotors are reflector B
+     *  and moving rotors I, II and III of the naval machine. */
+    private Machine smallMachine() {
+        ArrayList<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        all.add(new MovingRotor("I", new Permutation(NAVALA.get("I"), UPPER),
+                                "Q"));
+        all.add(new MovingRotor("II",
+                                new Permutation(NAVALA.get("II"), UPPER),
+                                "E"));
+        all.add(new MovingRotor("III",
+                                new Permutation(NAVALA.get("III"), UPPER),
+                                "V"));
+        return new Machine(UPPER, 4, 3, all);
+    }
+
+    /** Return MSG encrypted by a copy of CONFIG with rotors ROTORS at
+     *  SETTING and plugboard PLUGS. */
+    private String encrypt(Machine config, String[] rotors, String setting,
+                           String plugs, String msg) {
+        Machine m = config.copyConfig();
+        m.insertRotors(rotors);
+        m.setRotors(setting);
+        m.setPlugboard(new Permutation(plugs, UPPER));
+        return m.convert(msg);
+    }
+
+    /** Return true iff RESULT includes the key ROTORS at SETTING. */
+    private boolean found(SearchResult result, String[] rotors,
+                          String setting) {
+        for (SearchResult.Candidate c : result.candidates()) {
+            if (Arrays.equals(c.rotors(), rotors)
+                && c.setting().equals(setting)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkFindsKey() {
+        Machine config = smallMachine();
+        String[] rotors = {"B", "III", "I", "II"};
+        String plugs = "(AQ) (EP) (TZ) (MX)";
+        String msg = "WETTERVORHERSAGEBISKAYAREGENWINDAUSNORDWEST";
+        String cipher = encrypt(config, rotors, "QEV", plugs, msg);
+        CribSearch search =
+            new CribSearch(config, cipher, "WETTERVORHERSAGEBISKAYA", 0);
+        assertEquals(6 * 26 * 26 * 26, search.keys());
+        SearchResult result = search.run(new ForkJoinPool(4));
+        assertEquals(search.keys(), result.tested());
+        assertTrue(msg("crib", "key not found"), found(result, rotors, "QEV"));
+        assertTrue(msg("crib", "too many candidates: %d", result.found()),
+                   result.found() < 10);
+        for (SearchResult.Candidate c : result.candidates()) {
+            if (c.setting().equals("QEV")) {
+                for (String pair : c.plugboard().split(" ")) {
+                    assertTrue(msg("crib", "wrong plug %s", pair),
+                               plugs.contains(pair)
+                               || pair.charAt(1) > pair.charAt(2)
+                               && plugs.contains("(" + pair.charAt(2)
+                                                 + pair.charAt(1) + ")"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checkCribAtOffset() {
+        Machine config = smallMachine();
+        String[] rotors = {"B", "II", "III", "I"};
+        String msg = "ANXKOMMANDEURDERUBOOTEBERICHTETKEINEVERLUSTE";
+        String cipher = encrypt(config, rotors, "AZQ", "(KS) (BN)", msg);
+        CribSearch search = new CribSearch(config, cipher,
+                                           "KOMMANDEURDERUBOOTE", 3);
+        SearchResult result = search.run(ForkJoinPool.commonPool());
+        assertTrue(msg("offset", "key not found"),
+                   found(result, rotors, "AZQ"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkCribTooLong() {
+        new CribSearch(smallMachine(), "ABCDE", "ABCD", 2);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkCribNotInAlphabet() {
+        new CribSearch(smallMachine(), "ABCDE", "A1", 0);
+    }
+}
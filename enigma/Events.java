@@ -0,0 +1,108 @@
+package enigma;
+
+import java.util.Collection;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Java Flight Recorder events for the main stages of a run: loading the
+ *  configuration, applying each settings line and converting each
+ *  message.  They are recorded by any standard recording (for example,
+ *  with java -XX:StartFlightRecording) that enables them, which they are
+ *  by default, and cost next to nothing otherwise: each site fills in
+ *  an event's fields only if shouldCommit() says it will be recorded.
+ *  @author Wenhan Jin
+ */
+final class Events {
+
+    /** Not instantiable. */
+    private Events() {
+    }
+
+    /** Return the names of ROTORS, separated by blanks.  Null entries
+     *  (empty slots) are shown as "-". */
+    static String names(Rotor[] rotors) {
+        if (rotors == null) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder();
+        for (Rotor r : rotors) {
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            result.append(r == null ? "-" : r.name());
+        }
+        return result.toString();
+    }
+
+    /** Return the names of ROTORS, separated by blanks. */
+    static String names(Collection<Rotor> rotors) {
+        return names(rotors.toArray(new Rotor[0]));
+    }
+
+    /** The loading of a configuration file by Main. */
+    @Name("enigma.ConfigLoad")
+    @Label("Configuration Load")
+    @Category("Enigma")
+    @Description("Reading a machine configuration, plain or compiled")
+    static final class ConfigLoad extends Event {
+        /** The file read. */
+        @Label("File")
+        String file;
+        /** True iff it was compiled. */
+        @Label("Compiled")
+        boolean compiled;
+        /** Size of its alphabet. */
+        @Label("Alphabet Size")
+        int alphabetSize;
+        /** Number of rotor slots. */
+        @Label("Slots")
+        int slots;
+        /** Number of pawls. */
+        @Label("Pawls")
+        int pawls;
+        /** Names of the rotors available. */
+        @Label("Rotors")
+        String rotors;
+    }
+
+    /** The application of a settings line to a machine by Main. */
+    @Name("enigma.SetUp")
+    @Label("Settings Line")
+    @Category("Enigma")
+    @Description("Inserting and setting rotors and the plugboard")
+    static final class SetUp extends Event {
+        /** The settings line. */
+        @Label("Settings")
+        String settings;
+        /** Size of the alphabet. */
+        @Label("Alphabet Size")
+        int alphabetSize;
+        /** Names of the rotors inserted, by slot. */
+        @Label("Rotors")
+        String rotors;
+    }
+
+    /** The conversion of one message by Machine.convert. */
+    @Name("enigma.Convert")
+    @Label("Message Conversion")
+    @Category("Enigma")
+    @Description("Converting one message, blanks removed")
+    static final class Convert extends Event {
+        /** Number of characters converted. */
+        @Label("Message Length")
+        int length;
+        /** Size of the alphabet. */
+        @Label("Alphabet Size")
+        int alphabetSize;
+        /** Names of the rotors, by slot. */
+        @Label("Rotors")
+        String rotors;
+        /** True iff converted on a pool of threads. */
+        @Label("Parallel")
+        boolean parallel;
+    }
+}
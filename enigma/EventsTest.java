@@ -0,0 +1,78 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static enigma.MachineTest.navalMachine;
+
+/** The suite of all JUnit tests for the Events class.
+ *  @author Wenhan Jin
+ */
+public class EventsTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /** Return the events named NAME recorded by RECORDING, which has
+     *  been stopped. */
+    private List<RecordedEvent> events(Recording recording, String name)
+        throws IOException {
+        Path file = Files.createTempFile("enigma", ".jfr");
+        try {
+            recording.dump(file);
+            List<RecordedEvent> result = new ArrayList<>();
+            for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+                if (e.getEventType().getName().equals(name)) {
+                    result.add(e);
+                }
+            }
+            return result;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkNames() {
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        Rotor[] rotors = m.rotorsl().clone();
+        assertEquals("B Beta I II III", Events.names(rotors));
+        rotors[1] = null;
+        assertEquals("B - I II III", Events.names(rotors));
+        assertEquals("", Events.names((Rotor[]) null));
+    }
+
+    @Test
+    public void checkConvertRecorded() throws IOException {
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        List<RecordedEvent> found;
+        try (Recording recording = new Recording()) {
+            recording.enable("enigma.Convert").withoutThreshold();
+            recording.start();
+            m.convert("HELLO WORLD");
+            recording.stop();
+            found = events(recording, "enigma.Convert");
+        }
+        assertEquals(1, found.size());
+        RecordedEvent e = found.get(0);
+        assertEquals(10, e.getInt("length"));
+        assertEquals(26, e.getInt("alphabetSize"));
+        assertEquals("B Beta I II III", e.getString("rotors"));
+        assertFalse(e.getBoolean("parallel"));
+    }
+}
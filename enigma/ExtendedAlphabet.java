@@ -1,24 +1,100 @@
 package enigma;
 
+import java.util.Arrays;
+
 import static enigma.EnigmaException.*;
 
 /** An Extended Alphabet consisting of the any
  * Unicode characters except '(', ')', '-', '*'.
+ * Characters are looked up through a reverse index built at construction:
+ * a table indexed directly by character when the characters span a small
+ * range, and an open-addressing hash table otherwise.
  *  @author Wenhan Jin
  */
 class ExtendedAlphabet extends Alphabet {
 
 
     /** An extendedalphabet contructed from
-     * CHARLIST excluding '(', ')', '-', '*'.
+     * CHARLIST excluding '(', ')', '-', '*'.  No character may appear
+     * in CHARLIST twice.
      * @parameter */
     ExtendedAlphabet(char[] charlist) {
+        char min = Character.MAX_VALUE, max = Character.MIN_VALUE;
         for (char c : charlist) {
             if ((c == '(') || (c == ')') || (c == '-') || (c == '*')) {
                 throw error("prohibited characters");
             }
+            min = (char) Math.min(min, c);
+            max = (char) Math.max(max, c);
         }
         _charlist = charlist;
+        if (charlist.length == 0) {
+            return;
+        }
+        if (max - min < DENSE_SPAN + DENSE_FACTOR * charlist.length) {
+            buildDense(min, max);
+        } else {
+            buildHash();
+        }
+    }
+
+    /** Fill in _dense, covering the characters MIN..MAX. */
+    private void buildDense(char min, char max) {
+        _min = min;
+        _dense = new int[max - min + 1];
+        Arrays.fill(_dense, -1);
+        for (int i = 0; i < _charlist.length; i++) {
+            int k = _charlist[i] - min;
+            if (_dense[k] >= 0) {
+                throw error("duplicate character in alphabet: %c",
+                            _charlist[i]);
+            }
+            _dense[k] = i;
+        }
+    }
+
+    /** Fill in _keys and _slots, with at most half the slots in use. */
+    private void buildHash() {
+        int capacity = Integer.highestOneBit(2 * _charlist.length - 1) << 1;
+        _keys = new char[capacity];
+        _slots = new int[capacity];
+        _mask = capacity - 1;
+        Arrays.fill(_slots, -1);
+        for (int i = 0; i < _charlist.length; i++) {
+            char c = _charlist[i];
+            int h = hash(c);
+            while (_slots[h] >= 0) {
+                if (_keys[h] == c) {
+                    throw error("duplicate character in alphabet: %c", c);
+                }
+                h = (h + 1) & _mask;
+            }
+            _keys[h] = c;
+            _slots[h] = i;
+        }
+    }
+
+    /** Return the home slot of CH in _keys. */
+    private int hash(char ch) {
+        int h = ch * HASH_MULTIPLIER;
+        return (h ^ (h >>> HASH_SHIFT)) & _mask;
+    }
+
+    /** Return the index of CH, or -1 if it is not in this alphabet. */
+    private int indexOf(char ch) {
+        if (_dense != null) {
+            int k = ch - _min;
+            return k >= 0 && k < _dense.length ? _dense[k] : -1;
+        }
+        if (_slots == null) {
+            return -1;
+        }
+        for (int h = hash(ch); _slots[h] >= 0; h = (h + 1) & _mask) {
+            if (_keys[h] == ch) {
+                return _slots[h];
+            }
+        }
+        return -1;
     }
 
     @Override
@@ -28,17 +104,12 @@ class ExtendedAlphabet extends Alphabet {
 
     @Override
     boolean contains(char ch) {
-        for (char c : _charlist) {
-            if (ch == c) {
-                return true;
-            }
-        }
-        return false;
+        return indexOf(ch) >= 0;
     }
 
     @Override
     char toChar(int index) {
-        if (index >= size()) {
+        if (index < 0 || index >= size()) {
             throw error("character index out of range");
         }
         return _charlist[index];
@@ -46,14 +117,34 @@ class ExtendedAlphabet extends Alphabet {
 
     @Override
     int toInt(char ch) {
-        for (int i = 0; i < size(); i++) {
-            if (_charlist[i] == ch) {
-                return i;
-            }
+        int index = indexOf(ch);
+        if (index < 0) {
+            throw error("character out of range");
         }
-        throw error("character out of range");
+        return index;
     }
 
+    /** Characters may be indexed directly when they span fewer than
+     *  DENSE_SPAN + DENSE_FACTOR * size() code points. */
+    private static final int DENSE_SPAN = 1 << 10, DENSE_FACTOR = 8;
+    /** Odd multiplier (the golden ratio) scrambling characters for
+     *  hashing. */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+    /** Shift folding the high bits of a product into the low ones. */
+    private static final int HASH_SHIFT = 16;
+
     /** _CHARLIST is an array of char that contains the extended alphabet.  */
     private char[] _charlist;
+    /** Smallest character, when indexing directly. */
+    private char _min;
+    /** Index of each character from _min on, or -1, when indexing
+     *  directly; otherwise null. */
+    private int[] _dense;
+    /** Characters in the hash table, when hashing. */
+    private char[] _keys;
+    /** Index of the character in the corresponding _keys entry, or -1
+     *  for an empty slot, when hashing; otherwise null. */
+    private int[] _slots;
+    /** Mask reducing hash codes to slots. */
+    private int _mask;
 }
@@ -0,0 +1,75 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the ExtendedAlphabet class.
+ *  @author Wenhan Jin
+ */
+public class ExtendedAlphabetTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Check that an alphabet made from CHARS maps each of them to its
+     *  index and back, and contains none of ABSENT. */
+    private void checkAlphabet(String testId, char[] chars, char... absent) {
+        Alphabet alpha = new ExtendedAlphabet(chars);
+        assertEquals(testId + " (wrong size)", chars.length, alpha.size());
+        for (int i = 0; i < chars.length; i += 1) {
+            assertTrue(msg(testId, "missing '%c'", chars[i]),
+                       alpha.contains(chars[i]));
+            assertEquals(msg(testId, "wrong index of '%c'", chars[i]),
+                         i, alpha.toInt(chars[i]));
+            assertEquals(msg(testId, "wrong character %d", i),
+                         chars[i], alpha.toChar(i));
+        }
+        for (char c : absent) {
+            assertFalse(msg(testId, "contains '%c'", c), alpha.contains(c));
+        }
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkSmallSpan() {
+        checkAlphabet("letters", "QWERTYUIOPASDFGHJKLZXCVBNM".toCharArray(),
+                      'q', '0', (char) 0xFFFF);
+        checkAlphabet("digits", "9876543210.".toCharArray(), 'A', ' ');
+    }
+
+    @Test
+    public void checkWideSpan() {
+        char[] chars = new char[5000];
+        for (int i = 0; i < chars.length; i += 1) {
+            chars[i] = (char) (i * 13 + 100);
+        }
+        checkAlphabet("spread", chars, (char) 0, (char) 2, (char) 65000);
+        checkAlphabet("extremes", new char[] {'A', (char) 0xFFFE, (char) 1},
+                      (char) 0xFFFF, (char) 0, 'B');
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkDuplicateInSmallSpan() {
+        new ExtendedAlphabet("ABCDA".toCharArray());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkDuplicateInWideSpan() {
+        new ExtendedAlphabet(new char[] {'A', (char) 0x4E00, (char) 0x9000,
+                                         (char) 0x4E00});
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkMissingCharacter() {
+        new ExtendedAlphabet(new char[] {'A', (char) 0x4E00}).toInt('B');
+    }
+
+}
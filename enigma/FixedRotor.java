@@ -12,13 +12,4 @@ class FixedRotor extends Rotor {
     FixedRotor(String name, Permutation perm) {
         super(name, perm);
     }
-
-    @Override
-    void advance() {
-    }
-
-    @Override
-    int setting() {
-        return 0;
-    }
 }
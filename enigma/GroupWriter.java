@@ -0,0 +1,214 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import static enigma.EnigmaException.*;
+
+/** A writer of message lines in groups of five characters, separated by
+ *  blanks (the last group may have fewer).  Characters are encoded
+ *  straight into one large reusable byte buffer, ASCII characters
+ *  directly and others with the default charset, which is written out
+ *  to a FileChannel or OutputStream whenever it fills and on flush().
+ *  An interactive writer also writes out each line as it ends, for a
+ *  reader waiting on the other end of a connection.  A writer with no
+ *  destination keeps everything in memory, to be copied
+ *  into another writer later.
+ *  @author Wenhan Jin
+ */
+class GroupWriter {
+
+    /** A writer to the file open on CHANNEL. */
+    GroupWriter(FileChannel channel) {
+        this(channel, null, BUFFER_SIZE, false);
+    }
+
+    /** A writer to STREAM. */
+    GroupWriter(OutputStream stream) {
+        this(null, stream, BUFFER_SIZE, false);
+    }
+
+    /** A writer to STREAM that is interactive iff INTERACTIVE. */
+    GroupWriter(OutputStream stream, boolean interactive) {
+        this(null, stream, interactive ? LINE_SIZE : BUFFER_SIZE,
+             interactive);
+    }
+
+    /** A writer that keeps its output in memory. */
+    GroupWriter() {
+        this(null, null, MEMORY_SIZE, false);
+    }
+
+    /** A writer to CHANNEL or STREAM (or neither) with a SIZE-byte
+     *  buffer, interactive iff INTERACTIVE. */
+    private GroupWriter(FileChannel channel, OutputStream stream, int size,
+                        boolean interactive) {
+        _channel = channel;
+        _stream = stream;
+        _buf = new byte[size];
+        _interactive = interactive;
+    }
+
+    /** Write the LEN characters of MSG starting at OFF, in groups of
+     *  five, followed by a line terminator. */
+    void writeGroups(char[] msg, int off, int len) {
+        for (int g = 0; g < len; g += GROUP) {
+            if (g > 0) {
+                put((byte) ' ');
+            }
+            int end = Math.min(g + GROUP, len);
+            for (int i = g; i < end; i++) {
+                char c = msg[off + i];
+                if (c >= ASCII_LIMIT) {
+                    int run = i + 1;
+                    while (run < end && msg[off + run] >= ASCII_LIMIT) {
+                        run += 1;
+                    }
+                    putEncoded(msg, off + i, run - i);
+                    i = run - 1;
+                } else {
+                    put((byte) c);
+                }
+            }
+        }
+        newLine();
+    }
+
+    /** Write a line terminator. */
+    void newLine() {
+        for (byte b : NEWLINE) {
+            put(b);
+        }
+        if (_interactive) {
+            flush();
+        }
+    }
+
+    /** Append everything written so far to the in-memory writer SOURCE
+     *  to my output. */
+    void write(GroupWriter source) {
+        int len = source._len;
+        if (_channel == null && _stream == null) {
+            reserve(len);
+        } else if (len > _buf.length - _len) {
+            flushBuffer();
+        }
+        if (len > _buf.length - _len) {
+            writeOut(source._buf, len);
+        } else {
+            System.arraycopy(source._buf, 0, _buf, _len, len);
+            _len += len;
+        }
+        if (_interactive) {
+            flush();
+        }
+    }
+
+    /** Write out everything buffered so far. */
+    void flush() {
+        if (_channel == null && _stream == null) {
+            return;
+        }
+        flushBuffer();
+        if (_stream != null) {
+            try {
+                _stream.flush();
+            } catch (IOException excp) {
+                throw error("could not write output: %s", excp.getMessage());
+            }
+        }
+    }
+
+    /** Add B to my buffer. */
+    private void put(byte b) {
+        if (_len == _buf.length) {
+            makeRoom();
+        }
+        _buf[_len] = b;
+        _len += 1;
+    }
+
+    /** Add the LEN non-ASCII characters of MSG starting at OFF, encoded
+     *  with the default charset, to my buffer. */
+    private void putEncoded(char[] msg, int off, int len) {
+        ByteBuffer bytes = CHARSET.encode(CharBuffer.wrap(msg, off, len));
+        while (bytes.hasRemaining()) {
+            put(bytes.get());
+        }
+    }
+
+    /** Make room for at least one more byte in my buffer. */
+    private void makeRoom() {
+        if (_channel == null && _stream == null) {
+            reserve(1);
+        } else {
+            flushBuffer();
+        }
+    }
+
+    /** Grow my buffer, if needed, to hold LEN more bytes. */
+    private void reserve(int len) {
+        if (_buf.length - _len < len) {
+            long size = Math.max(2L * _buf.length, (long) _len + len);
+            if (size > Integer.MAX_VALUE - 8) {
+                throw error("output too large");
+            }
+            byte[] bigger = new byte[(int) size];
+            System.arraycopy(_buf, 0, bigger, 0, _len);
+            _buf = bigger;
+        }
+    }
+
+    /** Write my buffer to my destination and empty it. */
+    private void flushBuffer() {
+        writeOut(_buf, _len);
+        _len = 0;
+    }
+
+    /** Write the first LEN bytes of DATA to my destination. */
+    private void writeOut(byte[] data, int len) {
+        try {
+            if (_channel != null) {
+                ByteBuffer out = ByteBuffer.wrap(data, 0, len);
+                while (out.hasRemaining()) {
+                    _channel.write(out);
+                }
+            } else {
+                _stream.write(data, 0, len);
+            }
+        } catch (IOException excp) {
+            throw error("could not write output: %s", excp.getMessage());
+        }
+    }
+
+    /** Number of characters in a group. */
+    private static final int GROUP = 5;
+    /** Characters below this are written as single bytes. */
+    private static final char ASCII_LIMIT = 0x80;
+    /** Size of the buffer of a writer with a destination. */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Size of the buffer of an interactive writer. */
+    private static final int LINE_SIZE = 1 << 13;
+    /** Initial size of the buffer of an in-memory writer. */
+    private static final int MEMORY_SIZE = 1 << 12;
+    /** Charset for characters outside ASCII. */
+    private static final Charset CHARSET = Charset.defaultCharset();
+    /** The encoded line terminator. */
+    private static final byte[] NEWLINE =
+        System.lineSeparator().getBytes(CHARSET);
+
+    /** The file written, or null. */
+    private final FileChannel _channel;
+    /** The stream written, or null. */
+    private final OutputStream _stream;
+    /** True iff I write out each line as it ends. */
+    private final boolean _interactive;
+    /** Bytes not yet written out. */
+    private byte[] _buf;
+    /** Number of bytes in use in _buf. */
+    private int _len;
+}
@@ -0,0 +1,65 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+
+/** The suite of all JUnit tests for the GroupWriter class.
+ *  @author Wenhan Jin
+ */
+public class GroupWriterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** The line terminator. */
+    private static final String NL = System.lineSeparator();
+
+    /** Return the output of writing MSG in groups. */
+    private static String groups(String msg) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GroupWriter out = new GroupWriter(bytes);
+        out.writeGroups(msg.toCharArray(), 0, msg.length());
+        out.flush();
+        return bytes.toString();
+    }
+
+    @Test
+    public void checkGrouping() {
+        assertEquals(NL, groups(""));
+        assertEquals("ABC" + NL, groups("ABC"));
+        assertEquals("ABCDE" + NL, groups("ABCDE"));
+        assertEquals("ABCDE F" + NL, groups("ABCDEF"));
+        assertEquals("ABCDE FGHIJ" + NL, groups("ABCDEFGHIJ"));
+        assertEquals("ABCDE FGHIJ K" + NL, groups("ABCDEFGHIJK"));
+    }
+
+    @Test
+    public void checkLongLineAndCopy() {
+        StringBuilder msg = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1 << 19; i += 1) {
+            if (i > 0 && i % 5 == 0) {
+                expected.append(' ');
+            }
+            char c = (char) ('A' + i % 26);
+            msg.append(c);
+            expected.append(c);
+        }
+        expected.append(NL);
+        GroupWriter segment = new GroupWriter();
+        segment.writeGroups(msg.toString().toCharArray(), 0, msg.length());
+        segment.newLine();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GroupWriter out = new GroupWriter(bytes);
+        out.writeGroups(new char[] {'X'}, 0, 1);
+        out.write(segment);
+        out.flush();
+        assertEquals("X" + NL + expected + NL, bytes.toString());
+    }
+
+}
@@ -0,0 +1,115 @@
+package enigma;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A histogram of non-negative long values (such as latencies in
+ *  nanoseconds) with bounded relative error, after the manner of
+ *  HdrHistogram: values are counted in buckets whose width grows with
+ *  their magnitude, SUB_BUCKETS to each power of two, so that any value
+ *  is placed within about 1 / SUB_BUCKETS of its true size using a fixed,
+ *  small table.  Values may be recorded from many threads at once.
+ *  @author Wenhan Jin
+ */
+class Histogram {
+
+    /** Record VALUE, taking negative values as 0. */
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        _counts.incrementAndGet(bucket(value));
+        _count.increment();
+        _sum.add(value);
+        _max.accumulate(value);
+    }
+
+    /** Return the number of values recorded. */
+    long count() {
+        return _count.sum();
+    }
+
+    /** Return the sum of the values recorded. */
+    long sum() {
+        return _sum.sum();
+    }
+
+    /** Return the largest value recorded, or 0 if none. */
+    long max() {
+        return _max.get();
+    }
+
+    /** Return the mean of the values recorded, or 0 if none. */
+    double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum() / count;
+    }
+
+    /** Return an upper bound on the value below or at which fraction Q
+     *  (between 0 and 1) of the values recorded lie, accurate to the
+     *  width of a bucket, or 0 if none have been recorded. */
+    long percentile(double q) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            total += _counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            seen += _counts.get(i);
+            if (seen >= target) {
+                return Math.min(highest(i), max());
+            }
+        }
+        return max();
+    }
+
+    /** Forget all values recorded. */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i += 1) {
+            _counts.set(i, 0);
+        }
+        _count.reset();
+        _sum.reset();
+        _max.reset();
+    }
+
+    /** Return the index of the bucket holding VALUE >= 0. */
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /** Return the largest value held by bucket I. */
+    static long highest(int i) {
+        if (i < 2 * SUB_BUCKETS) {
+            return i;
+        }
+        int shift = i / SUB_BUCKETS - 1;
+        long sub = i % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /** Log (base 2) of the number of buckets to each power of two. */
+    private static final int SUB_BITS = 4;
+    /** Number of buckets to each power of two. */
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** Number of buckets, enough for any non-negative long. */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    /** Number of values in each bucket. */
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+    /** Number of values recorded. */
+    private final LongAdder _count = new LongAdder();
+    /** Sum of the values recorded. */
+    private final LongAdder _sum = new LongAdder();
+    /** Largest value recorded. */
+    private final LongAccumulator _max = new LongAccumulator(Math::max, 0);
+}
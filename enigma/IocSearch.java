@@ -0,0 +1,292 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only search for the rotors and setting of a message.
+ *  Every rotor order and starting position the configuration allows
+ *  (see RotorOrders) is used to decrypt the message, without a
+ *  plugboard, and scored by the index of coincidence of the result: the
+ *  chance that two letters drawn from it at random are equal, which is
+ *  higher for language than for the near-random output of a wrong key.
+ *  The keys are divided among the threads of a ForkJoinPool.  Each task
+ *  decrypts with its own Machine over the shared rotors, through
+ *  Machine.convert(int), counting letters in a reused array, and keeps
+ *  its best keys in a bounded heap; the heaps are merged as the tasks
+ *  finish.
+ *  @author Wenhan Jin
+ */
+class IocSearch {
+
+    /** Search for the key of CIPHERTEXT among those of CONFIG, keeping
+     *  the TOP best-scoring keys.  Blanks in CIPHERTEXT are ignored and
+     *  letters are taken in upper case. */
+    IocSearch(Machine config, String ciphertext, int top) {
+        if (top < 1) {
+            throw error("must keep at least one key");
+        }
+        _config = config;
+        _alphabet = config.alphabet();
+        _size = _alphabet.size();
+        _top = top;
+        _cipher = _alphabet.indices(ciphertext);
+        if (_cipher.length < 2) {
+            throw error("ciphertext too short to score");
+        }
+        _keys = new KeySpace(config);
+    }
+
+    /** Return the number of keys (rotor orders times starting positions)
+     *  to be tested. */
+    long keys() {
+        return _keys.size();
+    }
+
+    /** Test every key, on POOL, and return the best, best first. */
+    SearchResult run(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        Best best = pool.invoke(new Search(_keys.spliterator()));
+        long[] keys = best.keys();
+        double[] scores = best.scores();
+        SearchResult result = new SearchResult(keys.length);
+        for (int i = 0; i < keys.length; i += 1) {
+            result.add(candidate(keys[i], scores[i]));
+        }
+        result.tested(keys());
+        result.nanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /** Return the candidate for key KEY, which scored SCORE. */
+    private SearchResult.Candidate candidate(long key, double score) {
+        return new SearchResult.Candidate(
+            _keys.rotors(_keys.order(key)).clone(), _keys.setting(key), "",
+            score);
+    }
+
+    /** The best keys seen, up to a fixed number, as a min-heap on score
+     *  held in parallel primitive arrays.  Of two keys with the same
+     *  score, the lower-numbered is taken as better, so that the keys
+     *  kept do not depend on the order in which they were offered. */
+    static final class Best {
+
+        /** A heap keeping at most CAPACITY keys. */
+        Best(int capacity) {
+            _scores = new double[capacity];
+            _keys = new long[capacity];
+        }
+
+        /** Return the number of keys kept. */
+        int size() {
+            return _count;
+        }
+
+        /** Consider KEY, with score SCORE. */
+        void offer(long key, double score) {
+            if (_count < _keys.length) {
+                int i = _count;
+                _count += 1;
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (!better(_scores[parent], _keys[parent], score, key)) {
+                        break;
+                    }
+                    _scores[i] = _scores[parent];
+                    _keys[i] = _keys[parent];
+                    i = parent;
+                }
+                _scores[i] = score;
+                _keys[i] = key;
+            } else if (better(score, key, _scores[0], _keys[0])) {
+                siftDown(key, score);
+            }
+        }
+
+        /** Consider every key kept by OTHER. */
+        void merge(Best other) {
+            for (int i = 0; i < other._count; i += 1) {
+                offer(other._keys[i], other._scores[i]);
+            }
+        }
+
+        /** Return the keys kept, best first. */
+        long[] keys() {
+            long[] result = new long[_count];
+            Integer[] order = ranking();
+            for (int i = 0; i < _count; i += 1) {
+                result[i] = _keys[order[i]];
+            }
+            return result;
+        }
+
+        /** Return the scores of keys(), in the same order. */
+        double[] scores() {
+            double[] result = new double[_count];
+            Integer[] order = ranking();
+            for (int i = 0; i < _count; i += 1) {
+                result[i] = _scores[order[i]];
+            }
+            return result;
+        }
+
+        /** Return the heap indices of the keys kept, best first. */
+        private Integer[] ranking() {
+            Integer[] order = new Integer[_count];
+            for (int i = 0; i < _count; i += 1) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) ->
+                better(_scores[a], _keys[a], _scores[b], _keys[b]) ? -1
+                : better(_scores[b], _keys[b], _scores[a], _keys[a]) ? 1 : 0);
+            return order;
+        }
+
+        /** Replace the worst key kept by KEY, with SCORE, and restore the
+         *  heap. */
+        private void siftDown(long key, double score) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= _count) {
+                    break;
+                }
+                if (child + 1 < _count
+                    && better(_scores[child], _keys[child],
+                              _scores[child + 1], _keys[child + 1])) {
+                    child += 1;
+                }
+                if (!better(score, key, _scores[child], _keys[child])) {
+                    break;
+                }
+                _scores[i] = _scores[child];
+                _keys[i] = _keys[child];
+                i = child;
+            }
+            _scores[i] = score;
+            _keys[i] = key;
+        }
+
+        /** Return true iff KEY1 with SCORE1 is better than KEY2 with
+         *  SCORE2. */
+        private static boolean better(double score1, long key1,
+                                      double score2, long key2) {
+            return score1 > score2 || (score1 == score2 && key1 < key2);
+        }
+
+        /** Scores of the keys kept, in heap order (worst at 0). */
+        private final double[] _scores;
+        /** The keys kept. */
+        private final long[] _keys;
+        /** Number of keys kept. */
+        private int _count;
+    }
+
+    /** A task testing a range of keys (see KeySpace). */
+    private class Search extends RecursiveTask<Best> {
+
+        /** A task for the keys of RANGE. */
+        Search(Spliterator.OfLong range) {
+            _range = range;
+        }
+
+        @Override
+        protected Best compute() {
+            if (_range.estimateSize() > LEAF_KEYS) {
+                Spliterator.OfLong prefix = _range.trySplit();
+                if (prefix != null) {
+                    Search left = new Search(prefix);
+                    left.fork();
+                    Best best = compute();
+                    best.merge(left.join());
+                    return best;
+                }
+            }
+            Worker worker = new Worker();
+            _range.forEachRemaining((long key) -> worker.score(key));
+            return worker._best;
+        }
+
+        /** Keys still to be tested or handed on. */
+        private final Spliterator.OfLong _range;
+    }
+
+    /** The state of one thread's search: its own machine, letter counts
+     *  and best keys, reused for every key it tests. */
+    private class Worker {
+
+        /** Decrypt with KEY and offer it to my best keys. */
+        void score(long key) {
+            int order = _keys.order(key);
+            if (order != _order) {
+                _order = order;
+                _machine.insertRotors(_keys.rotors(order));
+            }
+            _keys.setRotors(_machine, key);
+            int[] counts = _counts;
+            Arrays.fill(counts, 0);
+            for (int c : _cipher) {
+                counts[_machine.convert(c)] += 1;
+            }
+            long same = 0;
+            for (int n : counts) {
+                same += (long) n * (n - 1);
+            }
+            _best.offer(key, (double) same / _pairs);
+        }
+
+        /** My own machine, whose state no other worker shares. */
+        private final Machine _machine = _config.copyConfig();
+        /** The order inserted in _machine, or -1. */
+        private int _order = -1;
+        /** Number of each letter in the current decryption. */
+        private final int[] _counts = new int[_size];
+        /** Number of ordered pairs of positions in the ciphertext. */
+        private final long _pairs = (long) _cipher.length
+            * (_cipher.length - 1);
+        /** The best keys I have tested. */
+        private final Best _best = new Best(_top);
+    }
+
+    /** Find the likeliest keys of the ciphertext given by ARGS: ARGS[0]
+     *  names a configuration file, ARGS[1] is the ciphertext and
+     *  ARGS[2], if present, the number of keys to report (10 by
+     *  default).  Prints each key as a settings line with its index of
+     *  coincidence, best first, followed by the number of keys tested
+     *  and the rate at which they were tested.  Exits with code 1 on
+     *  errors. */
+    public static void main(String... args) {
+        Main.tool(() -> {
+            if (args.length < 2 || args.length > 3) {
+                throw error("usage: CONFIG CIPHERTEXT [TOP]");
+            }
+            IocSearch search =
+                new IocSearch(Main.loadConfig(args[0]), args[1],
+                              Main.intArg(args, 2, 10, "count"));
+            SearchResult result = search.run(ForkJoinPool.commonPool());
+            for (SearchResult.Candidate c : result.candidates()) {
+                System.out.printf("%.5f %s%n", c.score(), c);
+            }
+            System.out.println(result.summary());
+        });
+    }
+
+    /** Largest number of keys tested by one task without splitting. */
+    private static final long LEAF_KEYS = 1 << 10;
+
+    /** The configuration searched. */
+    private final Machine _config;
+    /** Its alphabet. */
+    private final Alphabet _alphabet;
+    /** Size of _alphabet. */
+    private final int _size;
+    /** Number of keys kept. */
+    private final int _top;
+    /** The ciphertext, as indices in _alphabet. */
+    private final int[] _cipher;
+    /** The keys searched. */
+    private final KeySpace _keys;
+}
@@ -0,0 +1,112 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the IocSearch class.
+ *  @author Wenhan Jin
+ */
+public class IocSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /** A passage of English. */
+    private static final String TEXT =
+        "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA OF ROSEWOOD MADE OF "
+        + "SLIDING FOLDING ROSEWOOD NEATLY PUT IT ALL TOGETHER IN ITS CASE "
+        + "IT LAY COMPACTLY FOLDED INTO NEARLY NOTHING BUT HE OPENED OUT "
+        + "THE HINGES PUSHED AND PULLED THE JOINTS AND HINGES TILL IT "
+        + "LOOKED ALL SQUARES AND OBLONGS LIKE A COMPLICATED FIGURE IN THE "
+        + "SECOND BOOK OF EUCLID THIS HE PERCHED UPON A TRIPOD CROUCHED "
+        + "BENEATH ITS DUSKY COVER STRETCHED HIS HAND ENFORCING SILENCE "
+        + "SAID BE MOTIONLESS I BEG YOU MYSTIC AWFUL WAS THE PROCESS";
+
+    /** Return a four-slot machine whose available rotors are reflector B
+     *  and moving rotors I, II and III of the naval machine. */
+    private Machine smallMachine() {
+        ArrayList<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        all.add(new MovingRotor("I", new Permutation(NAVALA.get("I"), UPPER),
+                                "Q"));
+        all.add(new MovingRotor("II",
+                                new Permutation(NAVALA.get("II"), UPPER),
+                                "E"));
+        all.add(new MovingRotor("III",
+                                new Permutation(NAVALA.get("III"), UPPER),
+                                "V"));
+        return new Machine(UPPER, 4, 3, all);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkFindsKey() {
+        Machine config = smallMachine();
+        String[] rotors = {"B", "II", "I", "III"};
+        Machine m = config.copyConfig();
+        m.insertRotors(rotors);
+        m.setRotors("MEU");
+        String cipher = m.convert(TEXT);
+        IocSearch search = new IocSearch(config, cipher, 5);
+        SearchResult result = search.run(new ForkJoinPool(4));
+        assertEquals(search.keys(), result.tested());
+        assertEquals(5, result.candidates().size());
+        SearchResult.Candidate first = result.candidates().get(0);
+        assertArrayEquals(msg("ioc", "wrong rotors"), rotors, first.rotors());
+        assertEquals(msg("ioc", "wrong setting"), "MEU", first.setting());
+        assertTrue(msg("ioc", "implausible score %f", first.score()),
+                   first.score() > 0.055);
+        for (int i = 1; i < 5; i += 1) {
+            assertTrue(msg("ioc", "candidates out of order"),
+                       result.candidates().get(i).score()
+                       <= result.candidates().get(i - 1).score());
+        }
+    }
+
+    @Test
+    public void checkBestKeepsTop() {
+        Random rand = new Random(17);
+        int n = 5000;
+        double[] scores = new double[n];
+        IocSearch.Best[] parts = new IocSearch.Best[4];
+        for (int i = 0; i < parts.length; i += 1) {
+            parts[i] = new IocSearch.Best(20);
+        }
+        for (int k = 0; k < n; k += 1) {
+            scores[k] = rand.nextInt(1000) / 1000.0;
+            parts[k % parts.length].offer(k, scores[k]);
+        }
+        IocSearch.Best all = parts[0];
+        for (int i = 1; i < parts.length; i += 1) {
+            all.merge(parts[i]);
+        }
+        Integer[] expected = new Integer[n];
+        for (int k = 0; k < n; k += 1) {
+            expected[k] = k;
+        }
+        Arrays.sort(expected, (a, b) -> scores[a] != scores[b]
+                    ? Double.compare(scores[b], scores[a]) : a - b);
+        long[] keys = all.keys();
+        assertEquals(20, keys.length);
+        for (int i = 0; i < keys.length; i += 1) {
+            assertEquals(msg("best", "rank %d", i), (long) expected[i],
+                         keys[i]);
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkNoKeys() {
+        new IocSearch(smallMachine(), "ABCDEF", 0);
+    }
+}
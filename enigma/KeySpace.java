@@ -0,0 +1,194 @@
+package enigma;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import static enigma.EnigmaException.*;
+
+/** The keys of a machine configuration: every rotor order it allows (see
+ *  RotorOrders) at every starting setting.  Each key is a long, numbered
+ *  from 0 to size() - 1: the order's index times the number of settings,
+ *  plus the setting read as a number in base alphabet size with slot 1's
+ *  position as its leading digit.  Since the keys are consecutive
+ *  numbers, they can be enumerated and divided among threads with no
+ *  objects per key.  (The notches of this machine are part of each
+ *  rotor's description, not of the key, so they are not enumerated.)
+ *  @author Wenhan Jin
+ */
+class KeySpace {
+
+    /** The keys of CONFIG, a machine as returned by Main.readConfig. */
+    KeySpace(Machine config) {
+        _alphabet = config.alphabet();
+        _size = _alphabet.size();
+        _slots = config.numRotors();
+        _orders = RotorOrders.of(config);
+        if (_orders.isEmpty()) {
+            throw error("configuration allows no rotor order");
+        }
+        long settings = 1;
+        try {
+            for (int i = 1; i < _slots; i += 1) {
+                settings = Math.multiplyExact(settings, (long) _size);
+            }
+            _keys = Math.multiplyExact(settings, (long) _orders.size());
+        } catch (ArithmeticException excp) {
+            throw error("too many keys to number");
+        }
+        _settings = settings;
+    }
+
+    /** Return the number of keys. */
+    long size() {
+        return _keys;
+    }
+
+    /** Return the number of rotor orders. */
+    int orders() {
+        return _orders.size();
+    }
+
+    /** Return the number of starting settings of each order. */
+    long settings() {
+        return _settings;
+    }
+
+    /** Return the index of KEY's rotor order. */
+    int order(long key) {
+        return (int) (key / _settings);
+    }
+
+    /** Return the names of the rotors of order ORDER, by slot.  The array
+     *  is shared and must not be modified. */
+    String[] rotors(int order) {
+        return _orders.get(order);
+    }
+
+    /** Return the key with order ORDER and setting SETTING (a number as
+     *  described above). */
+    long key(int order, long setting) {
+        return order * _settings + setting;
+    }
+
+    /** Set the rotors of M, which must have KEY's order inserted, to
+     *  KEY's starting setting. */
+    void setRotors(Machine m, long key) {
+        long setting = key % _settings;
+        for (int j = _slots - 1; j >= 1; j -= 1) {
+            m.setPosition(j, (int) (setting % _size));
+            setting /= _size;
+        }
+    }
+
+    /** Return KEY's starting setting as a string of letters, as for
+     *  Machine.setRotors. */
+    String setting(long key) {
+        long setting = key % _settings;
+        char[] result = new char[_slots - 1];
+        for (int j = result.length - 1; j >= 0; j -= 1) {
+            result[j] = _alphabet.toChar((int) (setting % _size));
+            setting /= _size;
+        }
+        return new String(result);
+    }
+
+    /** Return KEY as a settings line without a plugboard. */
+    String toString(long key) {
+        return "* " + String.join(" ", rotors(order(key))) + " "
+            + setting(key);
+    }
+
+    /** Return a Spliterator over all the keys, in order. */
+    Spliterator.OfLong spliterator() {
+        return new Keys(0, _keys);
+    }
+
+    /** Return a Spliterator over the keys LO .. HI - 1. */
+    Spliterator.OfLong spliterator(long lo, long hi) {
+        if (lo < 0 || hi > _keys || lo > hi) {
+            throw new IndexOutOfBoundsException("bad key range");
+        }
+        return new Keys(lo, hi);
+    }
+
+    /** Return a stream of all the keys, in parallel iff PARALLEL. */
+    LongStream keys(boolean parallel) {
+        return StreamSupport.longStream(spliterator(), parallel);
+    }
+
+    /** A range of keys, split in halves. */
+    private static class Keys implements Spliterator.OfLong {
+
+        /** The keys LO .. HI - 1. */
+        Keys(long lo, long hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long mid = _lo + (_hi - _lo) / 2;
+            if (mid == _lo) {
+                return null;
+            }
+            Keys prefix = new Keys(_lo, mid);
+            _lo = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (_lo >= _hi) {
+                return false;
+            }
+            action.accept(_lo);
+            _lo += 1;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            long hi = _hi;
+            for (long key = _lo; key < hi; key += 1) {
+                action.accept(key);
+            }
+            _lo = hi;
+        }
+
+        @Override
+        public long estimateSize() {
+            return _hi - _lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED
+                | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+
+        /** Next key and end of my range. */
+        private long _lo, _hi;
+    }
+
+    /** The configuration's alphabet. */
+    private final Alphabet _alphabet;
+    /** Size of _alphabet. */
+    private final int _size;
+    /** Number of rotor slots. */
+    private final int _slots;
+    /** The rotor orders. */
+    private final List<String[]> _orders;
+    /** Number of starting settings of each order. */
+    private final long _settings;
+    /** Number of keys. */
+    private final long _keys;
+}
@@ -0,0 +1,114 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Spliterator;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the KeySpace class.
+ *  @author Wenhan Jin
+ */
+public class KeySpaceTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /** Return a five-slot machine with reflectors B and C, fixed rotors
+     *  Beta and Gamma and moving rotors I, II, III and IV of the naval
+     *  machine. */
+    private Machine config() {
+        ArrayList<Rotor> all = new ArrayList<>();
+        for (String name : new String[] {"B", "C"}) {
+            all.add(new Reflector(name,
+                                  new Permutation(NAVALA.get(name), UPPER)));
+        }
+        for (String name : new String[] {"Beta", "Gamma"}) {
+            all.add(new FixedRotor(name,
+                                   new Permutation(NAVALA.get(name), UPPER)));
+        }
+        String[] names = {"I", "II", "III", "IV"};
+        String[] notches = {"Q", "E", "V", "J"};
+        for (int i = 0; i < names.length; i += 1) {
+            all.add(new MovingRotor(names[i],
+                                    new Permutation(NAVALA.get(names[i]),
+                                                    UPPER),
+                                    notches[i]));
+        }
+        return new Machine(UPPER, 5, 3, all);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkSize() {
+        KeySpace keys = new KeySpace(config());
+        assertEquals(2 * 2 * 4 * 3 * 2, keys.orders());
+        assertEquals(26 * 26 * 26 * 26, keys.settings());
+        assertEquals(keys.orders() * keys.settings(), keys.size());
+        HashSet<String> orders = new HashSet<>();
+        for (int o = 0; o < keys.orders(); o += 1) {
+            String[] rotors = keys.rotors(o);
+            assertEquals(5, rotors.length);
+            orders.add(String.join(" ", rotors));
+        }
+        assertEquals(keys.orders(), orders.size());
+    }
+
+    @Test
+    public void checkDecode() {
+        Machine config = config();
+        KeySpace keys = new KeySpace(config);
+        long key = keys.key(17, ((2 * 26 + 25) * 26 + 0) * 26 + 7);
+        assertEquals(17, keys.order(key));
+        assertEquals("CZAH", keys.setting(key));
+        assertEquals("* " + String.join(" ", keys.rotors(17)) + " CZAH",
+                     keys.toString(key));
+        Machine m = config.copyConfig();
+        m.insertRotors(keys.rotors(17));
+        keys.setRotors(m, key);
+        Machine expected = config.copyConfig();
+        expected.insertRotors(keys.rotors(17));
+        expected.setRotors("CZAH");
+        assertEquals(expected.convert("HELLOWORLD"), m.convert("HELLOWORLD"));
+    }
+
+    @Test
+    public void checkSplitsEvenly() {
+        KeySpace keys = new KeySpace(config());
+        Spliterator.OfLong all = keys.spliterator();
+        assertTrue(all.hasCharacteristics(Spliterator.SIZED
+                                          | Spliterator.SUBSIZED));
+        Spliterator.OfLong prefix = all.trySplit();
+        assertEquals(keys.size() / 2, prefix.estimateSize());
+        assertEquals(keys.size() - keys.size() / 2, all.estimateSize());
+        long[] next = {0};
+        prefix.forEachRemaining((long key) -> {
+            assertEquals(next[0], key);
+            next[0] += 1;
+        });
+        all.forEachRemaining((long key) -> {
+            assertEquals(next[0], key);
+            next[0] += 1;
+        });
+        assertEquals(keys.size(), next[0]);
+        Spliterator.OfLong one = keys.spliterator(5, 6);
+        assertNull(one.trySplit());
+        assertTrue(one.tryAdvance((long key) -> assertEquals(5, key)));
+        assertFalse(one.tryAdvance((long key) -> fail()));
+    }
+
+    @Test
+    public void checkParallelStream() {
+        KeySpace keys = new KeySpace(config());
+        long n = keys.size();
+        assertEquals(n, keys.keys(true).count());
+        assertEquals(n * (n - 1) / 2, keys.keys(true).sum());
+    }
+}
@@ -0,0 +1,191 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import static enigma.EnigmaException.*;
+
+/** A reader that splits a byte stream into lines without regular
+ *  expressions.  Files are read through memory-mapped windows of their
+ *  channel; other streams through a large reusable buffer.  Lines end at
+ *  "\n", "\r\n" or "\r", and a final line need not be terminated.  Lines
+ *  consisting only of ASCII bytes are turned into Strings directly;
+ *  others are decoded with the default charset.
+ *  @author Wenhan Jin
+ */
+class LineReader {
+
+    /** A reader for the contents of the file open on CHANNEL. */
+    LineReader(FileChannel channel) {
+        _channel = channel;
+        _stream = null;
+        _buf = ByteBuffer.allocate(0);
+    }
+
+    /** A reader for the bytes of STREAM. */
+    LineReader(InputStream stream) {
+        _channel = null;
+        _stream = stream;
+        _buf = ByteBuffer.allocate(STREAM_BUFFER);
+        _buf.limit(0);
+    }
+
+    /** Return true iff there is another line to read. */
+    boolean hasNextLine() {
+        return _pos < _buf.limit() || fill(_pos);
+    }
+
+    /** Return the next line, without its terminator. */
+    String nextLine() {
+        if (!hasNextLine()) {
+            throw new NoSuchElementException("No line found");
+        }
+        int start = _pos;
+        int i = start;
+        int ascii = 0;
+        while (true) {
+            if (i == _buf.limit()) {
+                int offset = i - start;
+                if (!fill(start)) {
+                    return finishLine(_pos, offset, ascii, offset);
+                }
+                start = _pos;
+                i = start + offset;
+            }
+            byte b = _buf.get(i);
+            if (b == '\n' || b == '\r') {
+                String line =
+                    finishLine(start, i - start, ascii, i - start + 1);
+                if (b == '\r' && hasNextLine() && _buf.get(_pos) == '\n') {
+                    _pos += 1;
+                }
+                return line;
+            }
+            ascii |= b;
+            i += 1;
+        }
+    }
+
+    /** Return true iff the next whitespace-delimited token consists
+     *  entirely of asterisks.  Does not consume any input. */
+    boolean hasNextStars() {
+        int start = _pos;
+        int i = start;
+        boolean inToken = false;
+        while (true) {
+            if (i == _buf.limit()) {
+                int offset = i - start;
+                if (!fill(start)) {
+                    return inToken;
+                }
+                start = _pos;
+                i = start + offset;
+            }
+            byte b = _buf.get(i);
+            boolean white = b >= 0 && Character.isWhitespace((char) b);
+            if (white && inToken) {
+                return true;
+            } else if (!white && b != '*') {
+                return false;
+            } else if (!white) {
+                inToken = true;
+            }
+            i += 1;
+        }
+    }
+
+    /** Convert the LEN bytes at START into a String, treating them as
+     *  ASCII if ASCII is non-negative, and move past them and SKIP - LEN
+     *  more bytes. */
+    private String finishLine(int start, int len, int ascii, int skip) {
+        if (_scratch.length < len) {
+            _scratch = new byte[Math.max(len, 2 * _scratch.length)];
+        }
+        _buf.get(start, _scratch, 0, len);
+        _pos = start + skip;
+        if (ascii >= 0) {
+            return new String(_scratch, 0, len, StandardCharsets.ISO_8859_1);
+        }
+        return new String(_scratch, 0, len, CHARSET);
+    }
+
+    /** Make more input available after the end of _buf, keeping the bytes
+     *  from KEEP on, which move to position _pos.  Return false if there
+     *  is no more input. */
+    private boolean fill(int keep) {
+        try {
+            if (_channel != null) {
+                return map(keep);
+            }
+            return read(keep);
+        } catch (IOException excp) {
+            throw error("error reading input: %s", excp.getMessage());
+        }
+    }
+
+    /** Map a new window of _channel beginning at the byte at KEEP in the
+     *  current window and extending beyond its end, if possible. */
+    private boolean map(int keep) throws IOException {
+        long start = _windowStart + keep;
+        long end = _windowStart + _buf.limit();
+        long size = _channel.size();
+        if (end >= size) {
+            return false;
+        }
+        long want = Math.max(MAP_WINDOW, 2 * (end - start));
+        long len = Math.min(size - start, Math.min(want, MAX_WINDOW));
+        if (start + len <= end) {
+            throw error("input line too long");
+        }
+        _buf = _channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+        _windowStart = start;
+        _pos = 0;
+        return true;
+    }
+
+    /** Read more of _stream into _buf after moving the bytes from KEEP to
+     *  the start of _buf, growing it if they fill it. */
+    private boolean read(int keep) throws IOException {
+        int kept = _buf.limit() - keep;
+        byte[] data = _buf.array();
+        if (kept == data.length) {
+            if (data.length == MAX_WINDOW) {
+                throw error("input line too long");
+            }
+            data = new byte[(int) Math.min(2L * data.length, MAX_WINDOW)];
+        }
+        System.arraycopy(_buf.array(), keep, data, 0, kept);
+        int n = _stream.read(data, kept, data.length - kept);
+        _buf = ByteBuffer.wrap(data);
+        _buf.limit(kept + Math.max(n, 0));
+        _pos = 0;
+        return n > 0;
+    }
+
+    /** Bytes mapped at a time from a file. */
+    private static final long MAP_WINDOW = 1 << 26;
+    /** Size of the buffer used for other streams. */
+    private static final int STREAM_BUFFER = 1 << 16;
+    /** Largest window or buffer, and hence the longest line. */
+    private static final int MAX_WINDOW = Integer.MAX_VALUE - 8;
+    /** Charset for lines that are not pure ASCII. */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /** The file being read, or null. */
+    private final FileChannel _channel;
+    /** The stream being read if _channel is null. */
+    private final InputStream _stream;
+    /** The bytes currently available. */
+    private ByteBuffer _buf;
+    /** Position in the file of _buf's first byte, when mapping. */
+    private long _windowStart;
+    /** Index in _buf of the next unread byte. */
+    private int _pos;
+    /** Buffer holding the bytes of the line being converted. */
+    private byte[] _scratch = new byte[256];
+}
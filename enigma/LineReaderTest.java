@@ -0,0 +1,90 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** The suite of all JUnit tests for the LineReader class.
+ *  @author Wenhan Jin
+ */
+public class LineReaderTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a reader for the ASCII characters of TEXT read as a
+     *  stream. */
+    private static LineReader streamOf(String text) {
+        return new LineReader(new ByteArrayInputStream(
+                text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    /** Check that READER yields exactly the lines LINES. */
+    private static void checkLines(LineReader reader, String... lines) {
+        for (String line : lines) {
+            assertTrue("missing line " + line, reader.hasNextLine());
+            assertEquals(line, reader.nextLine());
+        }
+        assertFalse("extra line", reader.hasNextLine());
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkTerminators() {
+        checkLines(streamOf("A\nB\r\nC\rD"), "A", "B", "C", "D");
+        checkLines(streamOf("A\n\nB\n"), "A", "", "B");
+        checkLines(streamOf("\r\n\r\n"), "", "");
+        checkLines(streamOf(""));
+    }
+
+    @Test
+    public void checkStars() {
+        assertTrue(streamOf("  \n\t* B BETA").hasNextStars());
+        assertTrue(streamOf("***").hasNextStars());
+        assertFalse(streamOf("*B BETA").hasNextStars());
+        assertFalse(streamOf("Hello").hasNextStars());
+        assertFalse(streamOf("  \n").hasNextStars());
+        LineReader reader = streamOf("* B\nHELLO\n");
+        assertTrue(reader.hasNextStars());
+        checkLines(reader, "* B", "HELLO");
+    }
+
+    @Test
+    public void checkLongStreamLine() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200000; i += 1) {
+            text.append((char) ('A' + i % 26));
+        }
+        String line = text.toString();
+        checkLines(streamOf(line + "\r\n" + line), line, line);
+    }
+
+    @Test
+    public void checkMappedFile() throws IOException {
+        Path file = Files.createTempFile("enigma", ".inp");
+        try {
+            Files.write(file, "* B\r\nHELLO WORLD\n\nlast".getBytes(
+                    StandardCharsets.ISO_8859_1));
+            try (FileChannel channel = FileChannel.open(file)) {
+                LineReader reader = new LineReader(channel);
+                assertTrue(reader.hasNextStars());
+                checkLines(reader, "* B", "HELLO WORLD", "", "last");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
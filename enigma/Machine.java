@@ -1,12 +1,21 @@
 package enigma;
 
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static enigma.EnigmaException.*;
 
-/** Class that represents a complete enigma machine.
+/** Class that represents a complete enigma machine.  Its configuration
+ *  (alphabet, slots, pawls and available rotors) is a MachineTemplate,
+ *  which may be shared; the machine itself holds only its state: the
+ *  rotors in its slots, their positions and the plugboard.  Machines
+ *  never change the rotors they use, so machines sharing a template may
+ *  run at once on different threads.
  *  @author Wenhan Jin
  */
 class Machine {
@@ -16,83 +25,136 @@ class Machine {
      *  available rotors. */
     Machine(Alphabet alpha, int numRotors, int pawls,
             Collection<Rotor> allRotors) {
-        _alphabet = alpha;
-        _numRotors = numRotors;
-        _numPawls = pawls;
-        _allRotors = allRotors;
+        this(new MachineTemplate(alpha, numRotors, pawls, allRotors));
+    }
+
+    /** A new Enigma machine configured by TEMPLATE, with no rotors
+     *  inserted. */
+    Machine(MachineTemplate template) {
+        _template = template;
+        _alphabet = template.alphabet();
+        _size = _alphabet.size();
+    }
+
+    /** Return my configuration. */
+    MachineTemplate template() {
+        return _template;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return all the rotors available to me. */
+    Collection<Rotor> allRotors() {
+        return _template.allRotors();
     }
 
     /** Return the number of rotor slots I have. */
     int numRotors() {
-        return _numRotors;
+        return _template.numRotors();
     }
 
     /** Return the number pawls (and thus rotating rotors) I have. */
     int numPawls() {
-        return _numPawls;
+        return _template.numPawls();
     }
 
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
-        rotorsL = new Rotor[numRotors()];
-        HashMap<String, Rotor> rotorsMap = new HashMap<String, Rotor>();
-        for (Rotor r : _allRotors) {
-            rotorsMap.put(r.name().toUpperCase(), r);
-        }
+        Rotor[] slots = new Rotor[numRotors()];
         for (int i = 0; i < rotors.length; i++) {
-            String key = rotors[i].toUpperCase();
-            if (rotorsMap.containsKey(key)) {
-                rotorsL[i] = rotorsMap.get(key);
-            } else {
+            slots[i] = _template.rotor(rotors[i]);
+            if (slots[i] == null) {
                 throw error("Invalid rotor name");
             }
         }
+        boolean[] rotates = new boolean[slots.length];
+        int moving = 0;
+        for (int i = 0; i < slots.length; i++) {
+            rotates[i] = slots[i] != null && slots[i].rotates();
+            if (rotates[i]) {
+                moving += 1;
+            }
+        }
+        rotorsL = slots;
+        _rotates = rotates;
+        _numMoving = moving;
+        _positions = new int[slots.length];
+        _atNotch = new boolean[slots.length];
+    }
+
+    /** Return the number of moving rotors inserted. */
+    int numMoving() {
+        return _numMoving;
     }
 
     /** Set my rotors according to SETTING, which must be a string of
      *  numRotors()-1 upper-case letters. The first letter refers to the
      *  leftmost rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
+        if (setting.length() != rotorsL.length - 1) {
+            throw error("Wrong setting length");
+        }
         for (int i = 1; i < rotorsL.length; i++) {
-            rotorsL[i].set(setting.charAt(i - 1));
+            _positions[i] = _alphabet.toInt(setting.charAt(i - 1));
         }
     }
 
+    /** Return the position at which the rotor in SLOT converts. */
+    int position(int slot) {
+        return _positions[slot];
+    }
+
+    /** Return the setting of the rotor in SLOT: its position, except
+     *  that fixed rotors report a setting of 0 wherever they were set. */
+    int setting(int slot) {
+        return rotorsL[slot] instanceof FixedRotor ? 0 : _positions[slot];
+    }
+
+    /** Set the position of the rotor in SLOT to POSN (taken modulo the
+     *  size of my alphabet). */
+    void setPosition(int slot, int posn) {
+        posn = Math.floorMod(posn, _size);
+        if (posn != 0 && rotorsL[slot].reflecting()) {
+            throw error("reflector has only one position");
+        }
+        _positions[slot] = posn;
+    }
+
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
         _plugboard = plugboard;
     }
 
+    /** Return my plugboard, or null if I have none. */
+    Permutation plugboard() {
+        return _plugboard;
+    }
+
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
     int convert(int c) {
-        boolean[] checkadv = new boolean[rotorsL.length];
-        for (int i = 0; i < rotorsL.length; i++) {
-            checkadv[i] = rotorsL[i].atNotch();
-        }
-        rotorsL[rotorsL.length - 1].advance();
-        ArrayList<Rotor> advRotor = new ArrayList<Rotor>();
-        for (int i = 1; i < rotorsL.length - 1; i++) {
-            if ((rotorsL[i - 1].rotates()
-                    && (checkadv[i])) || (checkadv[i + 1])) {
-                advRotor.add(rotorsL[i]);
-            }
-        }
-        for (Rotor r : advRotor) {
-            r.advance();
-        }
+        Rotor[] rotors = rotorsL;
+        int[] pos = _positions;
+        int last = rotors.length - 1;
+        step();
         int cOut = c;
+        if (cOut < 0 || cOut >= _size) {
+            cOut = Math.floorMod(cOut, _size);
+        }
         if (_plugboard != null) {
             cOut = _plugboard.permute(cOut);
         }
-        for (int j = rotorsL.length - 1; j > -1; j--) {
-            cOut = rotorsL[j].convertForward(cOut);
+        for (int j = last; j > -1; j--) {
+            cOut = rotors[j].convertForward(cOut, pos[j]);
         }
-        for (int k = 1; k < rotorsL.length; k++) {
-            cOut = rotorsL[k].convertBackward(cOut);
+        for (int k = 1; k <= last; k++) {
+            cOut = rotors[k].convertBackward(cOut, pos[k]);
         }
         if (_plugboard != null) {
             cOut = _plugboard.permute(cOut);
@@ -100,53 +162,532 @@ class Machine {
         return cOut;
     }
 
+    /** Advance my rotors by one keypress, as convert(int) does, and store
+     *  in TABLE[OFF + C], for each index C in my alphabet, the conversion
+     *  of C by my rotors alone (without the plugboard) at their new
+     *  positions. */
+    void scramble(int[] table, int off) {
+        Rotor[] rotors = rotorsL;
+        int[] pos = _positions;
+        int last = rotors.length - 1;
+        step();
+        for (int c = 0; c < _size; c++) {
+            int cOut = c;
+            for (int j = last; j > -1; j--) {
+                cOut = rotors[j].convertForward(cOut, pos[j]);
+            }
+            for (int k = 1; k <= last; k++) {
+                cOut = rotors[k].convertBackward(cOut, pos[k]);
+            }
+            table[off + c] = cOut;
+        }
+    }
+
+    /** Advance my rotors by one keypress: the rightmost rotor always
+     *  moves, and any other rotor moves if the one to its right is at a
+     *  notch, or if it is itself at a notch and the rotor to its left has
+     *  a ratchet (double stepping). */
+    private void step() {
+        Rotor[] rotors = rotorsL;
+        int[] pos = _positions;
+        boolean[] rotates = _rotates;
+        boolean[] atNotch = _atNotch;
+        int last = rotors.length - 1;
+        for (int i = 0; i <= last; i++) {
+            atNotch[i] = rotates[i] && rotors[i].atNotch(pos[i]);
+        }
+        if (rotates[last]) {
+            pos[last] = next(pos[last]);
+        }
+        for (int i = 1; i < last; i++) {
+            if (rotates[i]
+                && ((rotates[i - 1] && atNotch[i]) || atNotch[i + 1])) {
+                pos[i] = next(pos[i]);
+            }
+        }
+    }
+
+    /** Return the position after POSN. */
+    private int next(int posn) {
+        return posn + 1 == _size ? 0 : posn + 1;
+    }
+
+    /** Return true iff the next keypress would move some rotor other
+     *  than the rightmost one. */
+    private boolean stepMovesInner() {
+        Rotor[] rotors = rotorsL;
+        int[] pos = _positions;
+        int last = rotors.length - 1;
+        boolean rightAtNotch =
+            _rotates[last] && rotors[last].atNotch(pos[last]);
+        for (int i = last - 1; i >= 1; i--) {
+            boolean atNotch = _rotates[i] && rotors[i].atNotch(pos[i]);
+            if (_rotates[i]
+                && (rightAtNotch || (_rotates[i - 1] && atNotch))) {
+                return true;
+            }
+            rightAtNotch = atNotch;
+        }
+        return false;
+    }
+
+    /** Set my rotors to the positions they would have after N keypresses,
+     *  starting from their current positions, without converting anything.
+     *  Stretches in which only the rightmost rotor moves are skipped in a
+     *  single jump computed from its distance to its next notch, so the
+     *  work done is proportional to the number of times any other rotor
+     *  moves rather than to N. */
+    void advance(long n) {
+        if (n < 0) {
+            throw error("cannot advance by a negative count");
+        }
+        Rotor[] rotors = rotorsL;
+        int[] pos = _positions;
+        int last = rotors.length - 1;
+        Rotor right = rotors[last];
+        boolean carries = _rotates[last] && last > 1 && _rotates[last - 1];
+        while (n > 0) {
+            if (stepMovesInner()) {
+                step();
+                n -= 1;
+                continue;
+            }
+            if (!_rotates[last]) {
+                return;
+            }
+            int gap = carries ? right.toNotch(pos[last]) : -1;
+            if (gap < 0 || gap >= n) {
+                pos[last] = (int) ((pos[last] + n % _size) % _size);
+                return;
+            }
+            pos[last] = (pos[last] + gap) % _size;
+            n -= gap;
+            step();
+            n -= 1;
+        }
+    }
+
+    /** Set my rotors to the positions they would have after N keypresses
+     *  starting from SETTING (as for setRotors). */
+    void seek(String setting, long n) {
+        setRotors(setting);
+        advance(n);
+    }
+
     /** Returns the encoding/decoding of MSG, updating the state of
-     *  the rotors accordingly. */
+     *  the rotors accordingly.  Blanks in MSG are ignored and letters
+     *  are taken in upper case. */
     String convert(String msg) {
-        msg = msg.replaceAll(" ", "");
-        msg = msg.toUpperCase();
-        String[] letterarray = msg.split("");
-        String[] outputarray = new String [letterarray.length];
-        String output = "";
-        int[] letterint = new int[letterarray.length];
-        for (int i = 0; i < letterint.length; i++) {
-            letterint[i] = _alphabet.toInt(letterarray[i].charAt(0));
-        }
-        char[] temp = new char [letterint.length];
-        for (int i = 0; i < letterarray.length; i++) {
-            letterint[i] = convert(letterint[i]);
-            temp[i] = _alphabet.toChar(letterint[i]);
-            outputarray[i] = Character.toString(temp[i]);
-        }
-        for (int k = 0; k < outputarray.length; k++) {
-            output += outputarray[k];
-        }
-        return output;
-    }
-
-    /**
-     *
-     * @return  an array of rotors for a configured machine
-     */
+        return convert(msg, null);
+    }
+
+    /** As for convert(MSG), but converting long messages concurrently on
+     *  POOL, if it is not null. */
+    String convert(String msg, ForkJoinPool pool) {
+        char[] buf = new char[msg.length()];
+        int len = convert(msg, buf, pool);
+        return new String(buf, 0, len);
+    }
+
+    /** As for convert(MSG, POOL), but storing the result at the start of
+     *  BUF, which must be at least as long as MSG, and returning its
+     *  length. */
+    int convert(String msg, char[] buf, ForkJoinPool pool) {
+        Events.Convert event = new Events.Convert();
+        event.begin();
+        int len = 0;
+        for (int i = 0; i < msg.length(); i++) {
+            char ch = msg.charAt(i);
+            if (ch != ' ') {
+                buf[len] = Character.toUpperCase(ch);
+                len += 1;
+            }
+        }
+        if (pool == null) {
+            convert(buf, 0, buf, 0, len);
+        } else {
+            convert(buf, 0, buf, 0, len, pool);
+        }
+        if (Metrics.enabled()) {
+            Metrics.characters(len);
+        }
+        if (event.shouldCommit()) {
+            event.length = len;
+            event.alphabetSize = _size;
+            event.rotors = Events.names(rotorsL);
+            event.parallel = pool != null;
+            event.commit();
+        }
+        return len;
+    }
+
+    /** Convert the LEN characters of MSG starting at MSGOFF, storing the
+     *  results in DEST starting at DESTOFF and updating the state of the
+     *  rotors accordingly.  MSG and DEST may be the same array.  When
+     *  the Vector API is in use (see useVectors), long stretches are
+     *  converted with convertBlock. */
+    void convert(char[] msg, int msgOff, char[] dest, int destOff, int len) {
+        checkBounds(msg.length, msgOff, dest.length, destOff, len);
+        if (_vectors && len >= MIN_VECTOR_BLOCK) {
+            convertBlock(msg, msgOff, dest, destOff, len);
+            return;
+        }
+        Alphabet alpha = _alphabet;
+        for (int i = 0; i < len; i++) {
+            int c = convert(alpha.toInt(msg[msgOff + i]));
+            dest[destOff + i] = alpha.toChar(c);
+        }
+    }
+
+    /** As for convert(MSG, MSGOFF, DEST, DESTOFF, LEN), but converting
+     *  up to BLOCK characters at a time.  The rotor positions for a whole
+     *  block, which do not depend on the characters, are worked out first;
+     *  then each stage of the machine (plugboard, each rotor forward, each
+     *  rotor backward, plugboard) is applied to the whole block in turn,
+     *  with the Vector API when it is in use. */
+    void convertBlock(char[] msg, int msgOff, char[] dest, int destOff,
+                      int len) {
+        checkBounds(msg.length, msgOff, dest.length, destOff, len);
+        if (_blockChars == null) {
+            _blockChars = new int[BLOCK];
+            _blockPositions = new int[rotorsL.length * BLOCK];
+        }
+        int[] c = _blockChars;
+        Alphabet alpha = _alphabet;
+        for (int start = 0; start < len; start += BLOCK) {
+            int k = Math.min(BLOCK, len - start);
+            for (int i = 0; i < k; i++) {
+                c[i] = alpha.toInt(msg[msgOff + start + i]);
+            }
+            schedule(k);
+            convertBlock(k);
+            for (int i = 0; i < k; i++) {
+                dest[destOff + start + i] = alpha.toChar(c[i]);
+            }
+        }
+    }
+
+    /** Step my rotors LEN times, recording in _blockPositions the
+     *  position of the rotor in each slot I after step K at
+     *  I * BLOCK + K.  As in advance(), stretches in which only the
+     *  rightmost rotor moves are filled in without stepping. */
+    private void schedule(int len) {
+        Rotor[] rotors = rotorsL;
+        int[] at = _positions;
+        int[] pos = _blockPositions;
+        int last = rotors.length - 1;
+        Rotor right = rotors[last];
+        boolean carries = _rotates[last] && last > 1 && _rotates[last - 1];
+        int k = 0;
+        while (k < len) {
+            if (stepMovesInner()) {
+                step();
+                for (int i = 0; i <= last; i++) {
+                    pos[i * BLOCK + k] = at[i];
+                }
+                k += 1;
+                continue;
+            }
+            int gap = carries ? right.toNotch(at[last]) : -1;
+            int run = gap < 0 ? len - k : Math.min(gap, len - k);
+            for (int i = 0; i < last; i++) {
+                Arrays.fill(pos, i * BLOCK + k, i * BLOCK + k + run, at[i]);
+            }
+            int p = at[last];
+            int step = _rotates[last] ? 1 : 0;
+            for (int t = k; t < k + run; t++) {
+                p += step;
+                if (p == _size) {
+                    p = 0;
+                }
+                pos[last * BLOCK + t] = p;
+            }
+            if (_rotates[last]) {
+                at[last] = p;
+            }
+            k += run;
+        }
+    }
+
+    /** Convert the first LEN indices in _blockChars in place, with the
+     *  rotor positions in _blockPositions. */
+    private void convertBlock(int len) {
+        Rotor[] rotors = rotorsL;
+        int last = rotors.length - 1;
+        int[] c = _blockChars;
+        int[] pos = _blockPositions;
+        int[] plugboard =
+            _plugboard == null ? null : _plugboard.forwardTable();
+        if (_vectors) {
+            if (plugboard != null) {
+                VectorKernels.lookup(plugboard, c, len);
+            }
+            for (int j = last; j >= 0; j--) {
+                VectorKernels.rotor(rotors[j].permutation().forwardTable(),
+                                    pos, j * BLOCK, c, len, _size);
+            }
+            for (int j = 1; j <= last; j++) {
+                VectorKernels.rotor(rotors[j].permutation().inverseTable(),
+                                    pos, j * BLOCK, c, len, _size);
+            }
+            if (plugboard != null) {
+                VectorKernels.lookup(plugboard, c, len);
+            }
+            return;
+        }
+        if (plugboard != null) {
+            for (int i = 0; i < len; i++) {
+                c[i] = plugboard[c[i]];
+            }
+        }
+        for (int j = last; j >= 0; j--) {
+            blockRotor(rotors[j].permutation().forwardTable(), j * BLOCK,
+                       len);
+        }
+        for (int j = 1; j <= last; j++) {
+            blockRotor(rotors[j].permutation().inverseTable(), j * BLOCK,
+                       len);
+        }
+        if (plugboard != null) {
+            for (int i = 0; i < len; i++) {
+                c[i] = plugboard[c[i]];
+            }
+        }
+    }
+
+    /** Pass each of the first LEN indices in _blockChars through the
+     *  rotor whose wiring (in the direction converted) is WIRING, at the
+     *  positions in _blockPositions starting at OFF. */
+    private void blockRotor(int[] wiring, int off, int len) {
+        int n = _size;
+        int[] c = _blockChars;
+        int[] pos = _blockPositions;
+        for (int i = 0; i < len; i++) {
+            int s = pos[off + i];
+            int p = c[i] + s;
+            if (p >= n) {
+                p -= n;
+            }
+            int r = wiring[p] - s;
+            c[i] = r < 0 ? r + n : r;
+        }
+    }
+
+    /** Convert the remaining characters of MSG into DEST, advancing the
+     *  positions of both buffers and updating the state of the rotors
+     *  accordingly. */
+    void convert(CharBuffer msg, CharBuffer dest) {
+        int len = msg.remaining();
+        if (dest.remaining() < len) {
+            throw new BufferOverflowException();
+        }
+        if (msg.hasArray() && dest.hasArray()) {
+            convert(msg.array(), msg.arrayOffset() + msg.position(),
+                    dest.array(), dest.arrayOffset() + dest.position(), len);
+            msg.position(msg.position() + len);
+            dest.position(dest.position() + len);
+            return;
+        }
+        Alphabet alpha = _alphabet;
+        for (int i = 0; i < len; i++) {
+            dest.put(alpha.toChar(convert(alpha.toInt(msg.get()))));
+        }
+    }
+
+    /** Convert the LEN characters of MSG starting at MSGOFF, each byte
+     *  taken as a character in the range 0-255, storing the results in
+     *  DEST starting at DESTOFF and updating the state of the rotors
+     *  accordingly.  MSG and DEST may be the same array. */
+    void convert(byte[] msg, int msgOff, byte[] dest, int destOff, int len) {
+        checkBounds(msg.length, msgOff, dest.length, destOff, len);
+        Alphabet alpha = _alphabet;
+        for (int i = 0; i < len; i++) {
+            char ch = (char) (msg[msgOff + i] & BYTE_MASK);
+            char out = alpha.toChar(convert(alpha.toInt(ch)));
+            if (out > BYTE_MASK) {
+                throw error("character %c does not fit in a byte", out);
+            }
+            dest[destOff + i] = (byte) out;
+        }
+    }
+
+    /** Convert the LEN bytes of MSG starting at MSGOFF, each taken as an
+     *  index (0-255) into my alphabet, which must have exactly 256
+     *  characters, storing the resulting indices in DEST starting at
+     *  DESTOFF and updating the state of the rotors accordingly.  MSG and
+     *  DEST may be the same array. */
+    void convertRaw(byte[] msg, int msgOff, byte[] dest, int destOff,
+                    int len) {
+        checkBounds(msg.length, msgOff, dest.length, destOff, len);
+        if (_size != ByteAlphabet.SIZE) {
+            throw error("raw conversion needs an alphabet of %d characters",
+                        ByteAlphabet.SIZE);
+        }
+        for (int i = 0; i < len; i++) {
+            dest[destOff + i] = (byte) convert(msg[msgOff + i] & BYTE_MASK);
+        }
+    }
+
+    /** As for convert(MSG, MSGOFF, DEST, DESTOFF, LEN), but splitting the
+     *  characters into chunks that are converted concurrently on POOL.
+     *  Each chunk is handled by a copy of me advanced to the chunk's first
+     *  character, and writes its own stretch of DEST, so the result is
+     *  identical to a sequential conversion.  Afterwards my rotors are
+     *  where that sequential conversion would have left them. */
+    void convert(char[] msg, int msgOff, char[] dest, int destOff, int len,
+                 ForkJoinPool pool) {
+        checkBounds(msg.length, msgOff, dest.length, destOff, len);
+        int chunks = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD,
+                              len / MIN_CHUNK);
+        boolean overlaps = msg == dest && msgOff != destOff
+            && msgOff < destOff + len && destOff < msgOff + len;
+        if (chunks < 2 || overlaps) {
+            convert(msg, msgOff, dest, destOff, len);
+            return;
+        }
+        ArrayList<ConvertChunk> tasks = new ArrayList<>(chunks);
+        Machine scout = copy();
+        int start = 0;
+        for (int k = 1; k <= chunks; k++) {
+            int end = (int) ((long) len * k / chunks);
+            tasks.add(new ConvertChunk(scout.copy(), msg, msgOff + start,
+                                       dest, destOff + start, end - start));
+            scout.advance(end - start);
+            start = end;
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        System.arraycopy(scout._positions, 0, _positions, 0,
+                         _positions.length);
+    }
+
+    /** A task converting one stretch of a message on its own machine. */
+    private static class ConvertChunk extends RecursiveAction {
+
+        /** A task converting the LEN characters of MSG starting at MSGOFF
+         *  into DEST starting at DESTOFF, using MACHINE. */
+        ConvertChunk(Machine machine, char[] msg, int msgOff,
+                     char[] dest, int destOff, int len) {
+            _machine = machine;
+            _msg = msg;
+            _msgOff = msgOff;
+            _dest = dest;
+            _destOff = destOff;
+            _len = len;
+        }
+
+        @Override
+        protected void compute() {
+            _machine.convert(_msg, _msgOff, _dest, _destOff, _len);
+        }
+
+        /** The machine converting my stretch. */
+        private final Machine _machine;
+        /** Source and destination arrays. */
+        private final char[] _msg, _dest;
+        /** Offsets of my stretch in _msg and _dest, and its length. */
+        private final int _msgOff, _destOff, _len;
+    }
+
+    /** Return a new machine with my configuration, rotors, settings and
+     *  plugboard, whose rotors move independently of mine. */
+    Machine copy() {
+        Machine result = new Machine(_template);
+        result._plugboard = _plugboard;
+        if (rotorsL != null) {
+            result.rotorsL = rotorsL;
+            result._positions = _positions.clone();
+            result._atNotch = new boolean[rotorsL.length];
+            result._rotates = _rotates;
+            result._numMoving = _numMoving;
+        }
+        return result;
+    }
+
+    /** Return a new machine with my configuration and no rotors
+     *  inserted, which can be set up and used independently of me. */
+    Machine copyConfig() {
+        return new Machine(_template);
+    }
+
+    /** Use the Vector API when converting iff ON and it is available
+     *  (see VectorSupport).  Turning it off lets the scalar code of
+     *  convertBlock be checked against the vector code in one JVM. */
+    void useVectors(boolean on) {
+        _vectors = on && VectorSupport.AVAILABLE;
+    }
+
+    /** Check that LEN items starting at MSGOFF lie within an array of
+     *  length MSGLEN and that as many starting at DESTOFF lie within an
+     *  array of length DESTLEN. */
+    private static void checkBounds(int msgLen, int msgOff,
+                                    int destLen, int destOff, int len) {
+        if (len < 0 || msgOff < 0 || destOff < 0
+            || msgOff > msgLen - len || destOff > destLen - len) {
+            throw new IndexOutOfBoundsException("bad offset or length");
+        }
+    }
+
+    /** Return the rotors in my slots, reflector first, which must not be
+     *  modified; their positions are given by position(). */
     Rotor[] rotorsl() {
         return rotorsL;
     }
 
-    /** Common alphabet of my rotors. */
-    private final Alphabet _alphabet;
+    /** Smallest number of characters worth converting as a separate
+     *  chunk in the concurrent conversion. */
+    private static final int MIN_CHUNK = 1 << 16;
+
+    /** Number of chunks per pool thread in the concurrent conversion, so
+     *  that uneven progress between threads evens out. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** Number of characters converted together by convertBlock. */
+    private static final int BLOCK = 1 << 10;
 
-    /** Number of my selected rotors. */
-    private int _numRotors;
+    /** Shortest stretch of characters worth converting in blocks with
+     *  the Vector API. */
+    private static final int MIN_VECTOR_BLOCK = 1 << 6;
 
-    /** Number of pawls. */
-    private int _numPawls;
+    /** Mask recovering an unsigned character from a byte. */
+    private static final int BYTE_MASK = 0xFF;
 
-    /** A collection of all rotors in the machine. */
-    private Collection<Rotor> _allRotors;
+    /** My configuration. */
+    private final MachineTemplate _template;
+
+    /** Common alphabet of my rotors. */
+    private final Alphabet _alphabet;
+
+    /** Size of _alphabet. */
+    private final int _size;
 
     /** Optional plugboard permutation for the machine. */
     private Permutation _plugboard;
 
-    /** An array of my selected rotors. */
+    /** An array of my selected rotors, shared with my copies. */
     private Rotor[] rotorsL;
+
+    /** _POSITIONS[I] is the position of rotorsL[I]. */
+    private int[] _positions;
+
+    /** Scratch space recording which of rotorsL were at a notch before
+     *  the current keypress, reused by every call to convert(int). */
+    private boolean[] _atNotch;
+
+    /** _ROTATES[I] is true iff rotorsL[I] has a ratchet. */
+    private boolean[] _rotates;
+
+    /** Number of rotors in rotorsL with ratchets. */
+    private int _numMoving;
+
+    /** Scratch space for convertBlock: the indices of a block of
+     *  characters, and the positions of each slot's rotor for each of
+     *  them (BLOCK per slot).  Allocated on first use. */
+    private int[] _blockChars, _blockPositions;
+    /** True iff conversions use the Vector API. */
+    private boolean _vectors = VectorSupport.AVAILABLE;
 }
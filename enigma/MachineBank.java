@@ -0,0 +1,235 @@
+package enigma;
+
+import java.util.HashMap;
+
+import static enigma.EnigmaException.*;
+
+/** A bank of many independent machines ("lanes") sharing one
+ *  configuration, stored as flat primitive arrays rather than as one
+ *  Machine and set of Rotors per lane.  The wirings and notches of the
+ *  configuration's rotors are held once, in tables indexed by rotor and
+ *  position; each lane holds only the choice and positions of its rotors
+ *  and its plugboard.  Per-slot data is laid out slot by slot, with the
+ *  lanes of each slot adjacent, so that a bulk step, which advances every
+ *  lane and converts one character in each, sweeps through memory in
+ *  order.  When the Vector API is available (see VectorSupport), the
+ *  lookups of a bulk step run several lanes at a time.
+ *  @author Wenhan Jin
+ */
+class MachineBank {
+
+    /** A bank of LANES machines with the alphabet, slots, pawls and
+     *  available rotors of CONFIG.  Every lane must be loaded before
+     *  the bank is used. */
+    MachineBank(Machine config, int lanes) {
+        if (lanes < 1) {
+            throw error("a bank needs at least one lane");
+        }
+        _alphabet = config.alphabet();
+        _size = _alphabet.size();
+        _lanes = lanes;
+        _slots = config.numRotors();
+        int count = config.allRotors().size();
+        _forward = new int[count * _size];
+        _backward = new int[count * _size];
+        _notchAt = new boolean[count * _size];
+        int id = 0;
+        for (Rotor r : config.allRotors()) {
+            _ids.put(r.name().toUpperCase(), id);
+            Permutation perm = r.permutation();
+            for (int p = 0; p < _size; p += 1) {
+                _forward[id * _size + p] = perm.permute(p);
+                _backward[id * _size + p] = perm.invert(p);
+                _notchAt[id * _size + p] = r.rotates() && r.atNotch(p);
+            }
+            id += 1;
+        }
+        _base = new int[_slots * lanes];
+        _pos = new int[_slots * lanes];
+        _rotates = new boolean[_slots * lanes];
+        _moves = new boolean[_slots * lanes];
+        _plugboard = new int[lanes * _size];
+        _plugBase = new int[lanes];
+        for (int lane = 0; lane < lanes; lane += 1) {
+            _plugBase[lane] = lane * _size;
+        }
+        _work = new int[lanes];
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return my number of lanes. */
+    int lanes() {
+        return _lanes;
+    }
+
+    /** Set LANE to the state of M, which must have my configuration and
+     *  have had its rotors inserted: the same rotors, at the same
+     *  positions, with the same plugboard. */
+    void load(int lane, Machine m) {
+        checkLane(lane);
+        Rotor[] rotors = m.rotorsl();
+        if (rotors == null || rotors.length != _slots
+            || m.alphabet().size() != _size) {
+            throw error("machine does not fit this bank");
+        }
+        for (int i = 0; i < _slots; i += 1) {
+            Integer id = _ids.get(rotors[i].name().toUpperCase());
+            if (id == null) {
+                throw error("rotor %s not in this bank's configuration",
+                            rotors[i].name());
+            }
+            int k = i * _lanes + lane;
+            _base[k] = id * _size;
+            _pos[k] = m.position(i);
+            _rotates[k] = rotors[i].rotates();
+        }
+        Permutation plugboard = m.plugboard();
+        for (int c = 0; c < _size; c += 1) {
+            _plugboard[lane * _size + c] =
+                plugboard == null ? c : plugboard.permute(c);
+        }
+    }
+
+    /** Return the position of the rotor in SLOT of LANE (as for
+     *  Machine.position). */
+    int setting(int lane, int slot) {
+        checkLane(lane);
+        return _pos[slot * _lanes + lane];
+    }
+
+    /** Advance every lane by one keypress and convert IN[L], an index in
+     *  my alphabet, in lane L, storing the result in OUT[L].  IN and OUT
+     *  must have an entry per lane, and may be the same array. */
+    void convert(int[] in, int[] out) {
+        if (in.length < _lanes || out.length < _lanes) {
+            throw new IndexOutOfBoundsException("fewer entries than lanes");
+        }
+        step();
+        int[] c = _work;
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            int ch = in[lane];
+            c[lane] = ch < 0 || ch >= _size ? Math.floorMod(ch, _size) : ch;
+        }
+        int last = _slots - 1;
+        if (VectorSupport.AVAILABLE) {
+            VectorKernels.lookup(_plugboard, _plugBase, c, _lanes);
+            for (int j = last; j >= 0; j -= 1) {
+                VectorKernels.rotor(_forward, _base, _pos, j * _lanes, c,
+                                    _lanes, _size);
+            }
+            for (int j = 1; j <= last; j += 1) {
+                VectorKernels.rotor(_backward, _base, _pos, j * _lanes, c,
+                                    _lanes, _size);
+            }
+            VectorKernels.lookup(_plugboard, _plugBase, c, _lanes);
+        } else {
+            lookup(_plugboard, c);
+            for (int j = last; j >= 0; j -= 1) {
+                rotor(_forward, j * _lanes, c);
+            }
+            for (int j = 1; j <= last; j += 1) {
+                rotor(_backward, j * _lanes, c);
+            }
+            lookup(_plugboard, c);
+        }
+        System.arraycopy(c, 0, out, 0, _lanes);
+    }
+
+    /** Advance the rotors of every lane by one keypress, with the same
+     *  rule as Machine: the rightmost rotor always moves, and any other
+     *  rotor moves if the one to its right is at a notch, or if it is
+     *  itself at a notch and the rotor to its left has a ratchet. */
+    private void step() {
+        int n = _lanes;
+        int last = _slots - 1;
+        boolean[] moves = _moves;
+        for (int lane = 0; lane < n; lane += 1) {
+            moves[last * n + lane] = true;
+        }
+        for (int i = 1; i < last; i += 1) {
+            for (int lane = 0; lane < n; lane += 1) {
+                int k = i * n + lane;
+                moves[k] = (_rotates[k - n] && atNotch(k))
+                    || atNotch(k + n);
+            }
+        }
+        for (int k = n; k < _slots * n; k += 1) {
+            if (moves[k] && _rotates[k]) {
+                int next = _pos[k] + 1;
+                _pos[k] = next == _size ? 0 : next;
+            }
+        }
+    }
+
+    /** Return true iff the rotor at K (slot * lanes + lane) is a rotating
+     *  rotor at one of its notches. */
+    private boolean atNotch(int k) {
+        return _notchAt[_base[k] + _pos[k]];
+    }
+
+    /** Replace each C[L] by entry C[L] of lane L's row of TABLE. */
+    private void lookup(int[] table, int[] c) {
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            c[lane] = table[lane * _size + c[lane]];
+        }
+    }
+
+    /** Pass each C[L] through the rotors at OFF + L (the lanes' rotors in
+     *  one slot) in the direction given by WIRING, which is _forward or
+     *  _backward. */
+    private void rotor(int[] wiring, int off, int[] c) {
+        int n = _size;
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            int s = _pos[off + lane];
+            int p = c[lane] + s;
+            if (p >= n) {
+                p -= n;
+            }
+            int r = wiring[_base[off + lane] + p] - s;
+            c[lane] = r < 0 ? r + n : r;
+        }
+    }
+
+    /** Check that LANE is one of mine. */
+    private void checkLane(int lane) {
+        if (lane < 0 || lane >= _lanes) {
+            throw new IndexOutOfBoundsException("no lane " + lane);
+        }
+    }
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+    /** Size of _alphabet. */
+    private final int _size;
+    /** Number of lanes. */
+    private final int _lanes;
+    /** Number of rotor slots in each lane. */
+    private final int _slots;
+    /** Index of each available rotor, by upper-case name. */
+    private final HashMap<String, Integer> _ids = new HashMap<>();
+    /** Permutation of each available rotor, SIZE entries per rotor. */
+    private final int[] _forward;
+    /** Inverse permutation of each available rotor. */
+    private final int[] _backward;
+    /** True at each notch of each available rotating rotor. */
+    private final boolean[] _notchAt;
+    /** Offset in the tables above of the rotor in each slot of each lane,
+     *  indexed by slot * lanes + lane. */
+    private final int[] _base;
+    /** Position of the rotor in each slot of each lane. */
+    private final int[] _pos;
+    /** True iff the rotor in each slot of each lane has a ratchet. */
+    private final boolean[] _rotates;
+    /** Scratch space: whether each rotor moves in the current step. */
+    private final boolean[] _moves;
+    /** Plugboard of each lane, SIZE entries per lane. */
+    private final int[] _plugboard;
+    /** Offset of each lane's row in _plugboard. */
+    private final int[] _plugBase;
+    /** Scratch space: the character in each lane during a step. */
+    private final int[] _work;
+}
@@ -0,0 +1,80 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static enigma.MachineTest.navalMachine;
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the MachineBank class.
+ *  @author Wenhan Jin
+ */
+public class MachineBankTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkLanesMatchMachines() {
+        String[][] choices = {
+            {"B", "Beta", "III", "IV", "I"},
+            {"C", "Gamma", "V", "II", "III"},
+            {"B", "Gamma", "I", "II", "III"},
+        };
+        String[] plugs = {"", "(HQ) (EX) (IP) (TR) (BY)", "(AZ)"};
+        Random rand = new Random(14);
+        int lanes = 37;
+        Machine[] machines = new Machine[lanes];
+        MachineBank bank = null;
+        for (int lane = 0; lane < lanes; lane += 1) {
+            char[] setting = new char[4];
+            for (int i = 0; i < setting.length; i += 1) {
+                setting[i] = (char) ('A' + rand.nextInt(26));
+            }
+            machines[lane] = navalMachine(new String(setting),
+                                          choices[lane % choices.length]);
+            String plug = plugs[lane % plugs.length];
+            if (!plug.isEmpty()) {
+                machines[lane].setPlugboard(new Permutation(plug, UPPER));
+            }
+            if (bank == null) {
+                bank = new MachineBank(machines[lane], lanes);
+            }
+            bank.load(lane, machines[lane]);
+        }
+        int[] chars = new int[lanes];
+        for (int step = 0; step < 20000; step += 1) {
+            int[] expected = new int[lanes];
+            for (int lane = 0; lane < lanes; lane += 1) {
+                chars[lane] = rand.nextInt(26);
+                expected[lane] = machines[lane].convert(chars[lane]);
+            }
+            bank.convert(chars, chars);
+            assertArrayEquals(msg("bank", "step %d", step), expected, chars);
+        }
+        for (int lane = 0; lane < lanes; lane += 1) {
+            for (int slot = 0; slot < 5; slot += 1) {
+                assertEquals(machines[lane].position(slot),
+                             bank.setting(lane, slot));
+            }
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkForeignRotor() {
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        ArrayList<Rotor> few = new ArrayList<>();
+        few.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        MachineBank bank = new MachineBank(new Machine(UPPER, 5, 3, few), 2);
+        bank.load(0, m);
+    }
+
+}
@@ -0,0 +1,75 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+
+/** The parts of an Enigma machine fixed by its configuration: the
+ *  alphabet, the numbers of rotor slots and pawls, and the rotors
+ *  available, with their wiring and notches.  A template never changes,
+ *  so it may be shared by any number of Machines on any number of
+ *  threads; each Machine keeps its own rotor positions and plugboard,
+ *  and making a new one (newMachine) copies nothing from the template.
+ *  @author Wenhan Jin
+ */
+final class MachineTemplate {
+
+    /** A template with alphabet ALPHA, 1 < NUMROTORS rotor slots,
+     *  0 <= PAWLS < NUMROTORS pawls and the rotors in ALLROTORS
+     *  available. */
+    MachineTemplate(Alphabet alpha, int numRotors, int pawls,
+                    Collection<Rotor> allRotors) {
+        _alphabet = alpha;
+        _numRotors = numRotors;
+        _numPawls = pawls;
+        _allRotors = Collections.unmodifiableList(new ArrayList<>(allRotors));
+        for (Rotor r : _allRotors) {
+            _byName.put(r.name().toUpperCase(), r);
+        }
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots I have. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls (and thus rotating rotors) I have. */
+    int numPawls() {
+        return _numPawls;
+    }
+
+    /** Return all the rotors available, which may not be modified. */
+    Collection<Rotor> allRotors() {
+        return _allRotors;
+    }
+
+    /** Return the available rotor named NAME, ignoring case, or null if
+     *  there is none.  Of several with the same name, the last one given
+     *  to my constructor is returned. */
+    Rotor rotor(String name) {
+        return _byName.get(name.toUpperCase());
+    }
+
+    /** Return a new machine of my configuration, with no rotors
+     *  inserted. */
+    Machine newMachine() {
+        return new Machine(this);
+    }
+
+    /** Common alphabet of my rotors. */
+    private final Alphabet _alphabet;
+    /** Number of rotor slots. */
+    private final int _numRotors;
+    /** Number of pawls. */
+    private final int _numPawls;
+    /** The rotors available. */
+    private final Collection<Rotor> _allRotors;
+    /** The rotors available, indexed by their names in upper case. */
+    private final HashMap<String, Rotor> _byName = new HashMap<>();
+}
@@ -0,0 +1,391 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Machine class.
+ *  @author Wenhan Jin
+ */
+public class MachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a machine holding the naval rotors I-V (with their usual
+     *  notches), Beta, Gamma, B and C, configured with ROTORS at
+     *  SETTING. */
+    static Machine navalMachine(String setting, String... rotors) {
+        ArrayList<Rotor> all = new ArrayList<>();
+        String[] names = {"I", "II", "III", "IV", "V"};
+        String[] notches = {"Q", "E", "V", "J", "Z"};
+        for (int i = 0; i < names.length; i += 1) {
+            all.add(new MovingRotor(names[i],
+                    new Permutation(NAVALA.get(names[i]), UPPER),
+                    notches[i]));
+        }
+        all.add(new FixedRotor("Beta", new Permutation(NAVALA.get("Beta"),
+                                                       UPPER)));
+        all.add(new FixedRotor("Gamma", new Permutation(NAVALA.get("Gamma"),
+                                                        UPPER)));
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        all.add(new Reflector("C", new Permutation(NAVALA.get("C"), UPPER)));
+        Machine m = new Machine(UPPER, rotors.length, 3, all);
+        m.insertRotors(rotors);
+        m.setRotors(setting);
+        return m;
+    }
+
+    /** Return the number of bytes allocated so far by the current thread,
+     *  or -1 if the JVM cannot tell. */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean =
+            ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) bean)
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkHelloWorld() {
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        assertEquals("ILBDAAMTAZ", m.convert("HELLO WORLD"));
+    }
+
+    @Test
+    public void checkConvertDoesNotAllocate() {
+        Machine m = navalMachine("AXLE", "B", "Beta", "III", "IV", "I");
+        m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", UPPER));
+        int sink = 0;
+        for (int i = 0; i < 200000; i += 1) {
+            sink += m.convert(i % 26);
+        }
+        long before = allocatedBytes();
+        if (before < 0) {
+            return;
+        }
+        for (int i = 0; i < 1000000; i += 1) {
+            sink += m.convert(i % 26);
+        }
+        long after = allocatedBytes();
+        assertTrue("convert(int) allocated " + (after - before) + " bytes",
+                   after - before < 1024);
+        assertTrue(sink >= 0);
+    }
+
+    @Test
+    public void checkBulkConversions() {
+        String msg = "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOOD";
+        String expected =
+            navalMachine("AXLE", "B", "Beta", "III", "IV", "I").convert(msg);
+
+        char[] chars = ("**" + msg).toCharArray();
+        navalMachine("AXLE", "B", "Beta", "III", "IV", "I")
+            .convert(chars, 2, chars, 0, msg.length());
+        assertEquals(expected, new String(chars, 0, msg.length()));
+
+        byte[] bytes = msg.getBytes();
+        byte[] out = new byte[bytes.length + 1];
+        navalMachine("AXLE", "B", "Beta", "III", "IV", "I")
+            .convert(bytes, 0, out, 1, bytes.length);
+        assertEquals(expected, new String(out, 1, bytes.length));
+
+        CharBuffer src = ByteBuffer.allocateDirect(2 * msg.length())
+            .asCharBuffer().put(msg);
+        src.flip();
+        CharBuffer dest = CharBuffer.allocate(msg.length());
+        navalMachine("AXLE", "B", "Beta", "III", "IV", "I")
+            .convert(src, dest);
+        assertEquals(0, src.remaining());
+        dest.flip();
+        assertEquals(expected, dest.toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void checkBulkBounds() {
+        char[] chars = new char[4];
+        navalMachine("AAAA", "B", "Beta", "I", "II", "III")
+            .convert(chars, 2, chars, 0, 3);
+    }
+
+    /** Check that converting MSG in blocks, split after its first
+     *  character, on a machine made by MAKER gives the same results and
+     *  final positions as converting it one character at a time on
+     *  another, both with and without the Vector API. */
+    private static void checkBlock(Supplier<Machine> maker, char[] msg) {
+        Machine single = maker.get();
+        Alphabet alpha = single.alphabet();
+        char[] expected = new char[msg.length];
+        for (int i = 0; i < msg.length; i += 1) {
+            expected[i] = alpha.toChar(single.convert(alpha.toInt(msg[i])));
+        }
+        for (boolean vectors : new boolean[] {true, false}) {
+            Machine block = maker.get();
+            block.useVectors(vectors);
+            char[] actual = new char[msg.length];
+            block.convertBlock(msg, 0, actual, 0, 1);
+            block.convertBlock(msg, 1, actual, 1, msg.length - 1);
+            assertArrayEquals(msg("block", "vectors %b", vectors),
+                              expected, actual);
+            for (int i = 0; i < single.rotorsl().length; i += 1) {
+                assertEquals(single.position(i), block.position(i));
+            }
+        }
+    }
+
+    @Test
+    public void checkBlockConversion() {
+        char[] msg = new char[5000];
+        Random rand = new Random(15);
+        for (int i = 0; i < msg.length; i += 1) {
+            msg[i] = (char) ('A' + rand.nextInt(26));
+        }
+        checkBlock(() -> {
+            Machine m = navalMachine("QEVJ", "C", "Gamma", "V", "II", "IV");
+            m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR)", UPPER));
+            return m;
+        }, msg);
+        Alphabet ad = new CharacterRange('A', 'D');
+        for (int i = 0; i < msg.length; i += 1) {
+            msg[i] = ad.toChar(msg[i] % 4);
+        }
+        checkBlock(() -> {
+            ArrayList<Rotor> all = new ArrayList<>();
+            all.add(new Reflector("R", new Permutation("(AC) (BD)", ad)));
+            all.add(new MovingRotor("M1", new Permutation("(ABCD)", ad),
+                                    "BC"));
+            all.add(new MovingRotor("M2", new Permutation("(AB)", ad), "CD"));
+            all.add(new MovingRotor("M3", new Permutation("(ADC)", ad), "AC"));
+            all.add(new FixedRotor("F", new Permutation("(BD)", ad)));
+            Machine m = new Machine(ad, 5, 3, all);
+            m.insertRotors(new String[] {"R", "F", "M1", "M2", "M3"});
+            m.setRotors("BCCD");
+            return m;
+        }, msg);
+    }
+
+    @Test
+    public void checkRawConversion() {
+        Alphabet bytes = new ByteAlphabet();
+        Random rand = new Random(256);
+        ArrayList<Rotor> all = new ArrayList<>();
+        int[] pairs = new int[bytes.size()];
+        for (int i = 0; i < pairs.length; i += 2) {
+            pairs[i] = i + 1;
+            pairs[i + 1] = i;
+        }
+        all.add(new Reflector("R", new Permutation(pairs, bytes)));
+        for (int k = 0; k < 3; k += 1) {
+            int[] wiring = new int[bytes.size()];
+            for (int i = 0; i < wiring.length; i += 1) {
+                wiring[i] = (i * 5 + 17 * k + 3) % wiring.length;
+            }
+            all.add(new MovingRotor("M" + k, new Permutation(wiring, bytes),
+                                    "\u0000\u0080"));
+        }
+        byte[] data = new byte[100000];
+        rand.nextBytes(data);
+        byte[] out = new byte[data.length];
+        String[] names = {"R", "M0", "M1", "M2"};
+        Machine m = new Machine(bytes, 4, 3, all);
+        m.insertRotors(names);
+        m.setRotors("abc");
+        m.convertRaw(data, 0, out, 0, data.length);
+        assertFalse(Arrays.equals(data, out));
+
+        Machine back = new Machine(bytes, 4, 3, all);
+        back.insertRotors(names);
+        back.setRotors("abc");
+        back.convertRaw(out, 0, out, 0, out.length);
+        assertArrayEquals(data, out);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkRawNeedsByteSizedAlphabet() {
+        byte[] data = new byte[4];
+        navalMachine("AAAA", "B", "Beta", "I", "II", "III")
+            .convertRaw(data, 0, data, 0, data.length);
+    }
+
+    /** Check that advancing M by N keypresses leaves it in the same state
+     *  as converting N characters on a copy made by MAKER. */
+    private static void checkAdvance(Supplier<Machine> maker, long n) {
+        Machine stepped = maker.get();
+        for (long i = 0; i < n; i += 1) {
+            stepped.convert(0);
+        }
+        Machine jumped = maker.get();
+        jumped.advance(n);
+        String where = msg("advance", "%d keypresses", n);
+        for (int i = 0; i < stepped.rotorsl().length; i += 1) {
+            assertEquals(where, stepped.setting(i), jumped.setting(i));
+        }
+        char[] probe = new char[3 * UPPER.size()];
+        for (int i = 0; i < probe.length; i += 1) {
+            probe[i] = stepped.rotorsl()[0].alphabet()
+                .toChar(i % stepped.rotorsl()[0].size());
+        }
+        assertEquals(where, stepped.convert(new String(probe)),
+                     jumped.convert(new String(probe)));
+    }
+
+    @Test
+    public void checkAdvanceMatchesStepping() {
+        Random rand = new Random(61);
+        for (int trial = 0; trial < 40; trial += 1) {
+            long n = rand.nextInt(40000);
+            checkAdvance(() -> navalMachine("AXLE", "B", "Beta", "III", "IV",
+                                            "I"), n);
+            checkAdvance(() -> navalMachine("ZDQU", "C", "Gamma", "V", "II",
+                                            "III"), n);
+        }
+        checkAdvance(() -> navalMachine("AAAA", "B", "Beta", "I", "II", "III"),
+                     0);
+    }
+
+    @Test
+    public void checkAdvanceWithManyNotches() {
+        Alphabet ad = new CharacterRange('A', 'D');
+        Supplier<Machine> maker = () -> {
+            ArrayList<Rotor> all = new ArrayList<>();
+            all.add(new Reflector("R", new Permutation("(AC) (BD)", ad)));
+            all.add(new MovingRotor("M1", new Permutation("(ABCD)", ad),
+                                    "BC"));
+            all.add(new MovingRotor("M2", new Permutation("(AB)", ad), "CD"));
+            all.add(new MovingRotor("M3", new Permutation("(ADC)", ad), "AC"));
+            all.add(new FixedRotor("F", new Permutation("(BD)", ad)));
+            Machine m = new Machine(ad, 5, 3, all);
+            m.insertRotors(new String[] {"R", "F", "M1", "M2", "M3"});
+            m.setRotors("BCCD");
+            return m;
+        };
+        for (long n = 0; n < 300; n += 7) {
+            checkAdvance(maker, n);
+        }
+    }
+
+    @Test
+    public void checkRotorLookup() {
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        MachineTemplate template = m.template();
+        assertEquals("Beta", template.rotor("BETA").name());
+        assertEquals("Beta", template.rotor("beta").name());
+        assertNull(template.rotor("VI"));
+        assertEquals(3, m.numMoving());
+        m.insertRotors(new String[] {"C", "gamma", "Beta", "v", "IV"});
+        assertEquals(2, m.numMoving());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkBadRotorName() {
+        navalMachine("AAAA", "B", "Beta", "I", "II", "VI");
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkShortSetting() {
+        navalMachine("AAA", "B", "Beta", "I", "II", "III");
+    }
+
+    @Test
+    public void checkSeek() {
+        Machine m = navalMachine("AXLE", "B", "Beta", "III", "IV", "I");
+        String whole = m.convert("FROMHISSHOULDERHIAWATHATOOKTHECAMERA");
+        m.seek("AXLE", 15);
+        assertEquals(whole.substring(15), m.convert("HIAWATHATOOKTHECAMERA"));
+    }
+
+    @Test
+    public void checkParallelConversion() {
+        char[] msg = new char[1 << 20];
+        Random rand = new Random(17);
+        for (int i = 0; i < msg.length; i += 1) {
+            msg[i] = (char) ('A' + rand.nextInt(26));
+        }
+        Machine seq = navalMachine("QEVJ", "B", "Beta", "V", "II", "IV");
+        char[] expected = new char[msg.length];
+        seq.convert(msg, 0, expected, 0, msg.length);
+
+        Machine par = navalMachine("QEVJ", "B", "Beta", "V", "II", "IV");
+        char[] actual = new char[msg.length];
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            par.convert(msg, 0, actual, 0, msg.length, pool);
+        } finally {
+            pool.shutdown();
+        }
+        assertArrayEquals(expected, actual);
+        assertEquals(seq.convert("THEENDOFTHEMESSAGE"),
+                     par.convert("THEENDOFTHEMESSAGE"));
+    }
+
+    @Test
+    public void checkSharedTemplate() {
+        Machine config = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        Machine one = config.template().newMachine();
+        Machine two = config.copyConfig();
+        one.insertRotors(new String[] {"B", "Beta", "I", "II", "III"});
+        two.insertRotors(new String[] {"B", "Beta", "I", "II", "III"});
+        one.setRotors("AXLE");
+        two.setRotors("AXLE");
+        String first = one.convert("FROMHISSHOULDERHIAWATHA");
+        assertEquals(first, two.convert("FROMHISSHOULDERHIAWATHA"));
+        assertEquals(one.convert("TOOKTHECAMERA"),
+                     two.convert("TOOKTHECAMERA"));
+        assertSame(one.rotorsl()[2], two.rotorsl()[2]);
+    }
+
+    @Test
+    public void checkConcurrentMachines() throws Exception {
+        Machine config = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        MachineTemplate template = config.template();
+        char[] msg = new char[1 << 14];
+        for (int i = 0; i < msg.length; i += 1) {
+            msg[i] = (char) ('A' + i * 7 % 26);
+        }
+        Machine reference = template.newMachine();
+        reference.insertRotors(new String[] {"C", "Gamma", "V", "II", "IV"});
+        reference.setRotors("QEVJ");
+        String expected = reference.convert(new String(msg));
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<String>> results = new ArrayList<>();
+            for (int k = 0; k < 16; k += 1) {
+                results.add(threads.submit(() -> {
+                    Machine m = template.newMachine();
+                    m.insertRotors(new String[] {"C", "Gamma", "V", "II",
+                                                 "IV"});
+                    m.setRotors("QEVJ");
+                    return m.convert(new String(msg));
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+}
@@ -2,11 +2,23 @@ package enigma;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static enigma.EnigmaException.*;
 
@@ -16,17 +28,74 @@ import static enigma.EnigmaException.*;
 public final class Main {
 
     /** Process a sequence of encryptions and decryptions, as
-     *  specified by ARGS, where 1 <= ARGS.length <= 3.
+     *  specified by ARGS, where 1 <= ARGS.length <= 3 after removing any
+     *  leading options.
      *  ARGS[0] is the name of a configuration file.
      *  ARGS[1] is optional; when present, it names an input file
      *  containing messages.  Otherwise, input comes from the standard
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.
+     *  ARGS[0] may also name a compiled configuration, which is loaded
+     *  directly instead of being parsed.
+     *  The options are:
+     *    --parallel  Convert long messages, and the stretches of input
+     *                between settings lines, on all available
+     *                processors.
+     *    --compile   Instead of processing messages, write the
+     *                configuration in ARGS[0] in compiled form to the
+     *                file named ARGS[1]; there must be no ARGS[2].
+     *    --raw       Encrypt or decrypt an arbitrary file byte by byte.
+     *                ARGS[1] is then a settings line for the machine
+     *                (as it would appear in an input file), whose
+     *                alphabet must have 256 characters, such as the byte
+     *                alphabet named 0x00-0xFF; ARGS[2] and ARGS[3] name
+     *                the optional input and output files.  Each byte is
+     *                taken as an index into the alphabet, and the input
+     *                is converted as a single stream, without lines or
+     *                groups.  In cycles, notches and rotor settings over
+     *                the byte alphabet, \xNN stands for the character
+     *                numbered NN (in hexadecimal), so that whitespace
+     *                and parentheses may be wired.
+     *    --stats     At exit, print on the standard error the numbers of
+     *                characters, messages and settings lines processed,
+     *                the time taken to load the configuration, and the
+     *                distribution of the time taken to convert each
+     *                message.  With --stats=FILE, write these to FILE as
+     *                JSON instead. */
     public static void main(String... args) {
+        if (run(System.err, args) != 0) {
+            System.exit(1);
+        }
+    }
+
+    /** Do what main does with ARGS, but print any error message on ERR
+     *  and return the exit code instead of exiting.  Statistics are
+     *  reported even after an error, and a failure to report them is
+     *  printed after, not instead of, that error. */
+    static int run(PrintStream err, String... args) {
+        int code = 0;
         try {
             new Main(args).process();
+        } catch (EnigmaException excp) {
+            err.printf("Error: %s%n", excp.getMessage());
+            code = 1;
+        }
+        try {
+            Metrics.report();
+        } catch (EnigmaException excp) {
+            err.printf("Error: %s%n", excp.getMessage());
+            code = 1;
+        }
+        return code;
+    }
+
+    /** Do BODY, the work of the main program of a tool: print any error
+     *  it reports on the standard error and then exit with code 1. */
+    static void tool(Runnable body) {
+        try {
+            body.run();
             return;
         } catch (EnigmaException excp) {
             System.err.printf("Error: %s%n", excp.getMessage());
@@ -34,26 +103,153 @@ public final class Main {
         System.exit(1);
     }
 
+    /** Return the integer ARGS[K], or OTHERWISE if ARGS has no element K.
+     *  WHAT names the argument in the error for a bad number. */
+    static int intArg(String[] args, int k, int otherwise, String what) {
+        if (k >= args.length) {
+            return otherwise;
+        }
+        try {
+            return Integer.parseInt(args[k]);
+        } catch (NumberFormatException excp) {
+            throw error("bad %s: %s", what, args[k]);
+        }
+    }
+
+    /** Return the machine described by the configuration file (plain or
+     *  compiled) named NAME, with no rotors inserted. */
+    static Machine loadConfig(String name) {
+        Main main = new Main();
+        main.openConfig(name);
+        return main.readConfig();
+    }
+
+    /** Return the machine described by the configuration file named
+     *  NAME, set up according to the settings line SETTINGS. */
+    static Machine loadConfig(String name, String settings) {
+        Main main = new Main();
+        main.openConfig(name);
+        Machine m = main.readConfig();
+        main.setUp(m, settings);
+        return m;
+    }
+
+    /** Process the settings lines and messages read from IN as main
+     *  would for a configuration describing CONFIG, writing the results
+     *  to OUT as each line (or, on POOL, each stretch between settings
+     *  lines) is finished.  The conversions are done on a fresh copy of
+     *  CONFIG, which is not changed, so that any number of sessions may
+     *  share it; long messages are converted on POOL unless it is
+     *  null. */
+    static void session(Machine config, InputStream in, OutputStream out,
+                        ForkJoinPool pool) {
+        Main main = new Main();
+        main._alphabet = config.alphabet();
+        main._input = new LineReader(in);
+        main._output = new GroupWriter(out, true);
+        main._pool = pool;
+        if (!main._input.hasNextStars()) {
+            throw error("No configuration");
+        }
+        main.processInput(config.copyConfig());
+    }
+
+    /** A Main that has opened nothing, for loadConfig and session. */
+    private Main() {
+    }
+
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        args = parseOptions(args);
+        if (_compile && args.length != 2) {
+            throw error("--compile needs a configuration and an output file");
+        }
+        if (_raw) {
+            if (args.length < 2 || args.length > 4) {
+                throw error("--raw needs a configuration, a settings line "
+                            + "and up to two files");
+            }
+            openConfig(args[0]);
+            _rawSettings = args[1];
+            _rawInput = args.length > 2 ? getByteInput(args[2]) : System.in;
+            _rawOutput = args.length > 3 ? getByteOutput(args[3])
+                : System.out;
+            return;
+        }
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
-        _config = getInput(args[0]);
+        openConfig(args[0]);
+
+        if (_compile) {
+            _compiledOutput = getChannel(args[1]);
+            return;
+        }
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = getLines(args[1]);
         } else {
-            _input = new Scanner(System.in);
+            _input = new LineReader(System.in);
         }
-        if (!_input.hasNext("\\*+")) {
+        if (!_input.hasNextStars()) {
             throw error("No configuration");
         }
         if (args.length > 2) {
             _output = getOutput(args[2]);
         } else {
-            _output = System.out;
+            _output = new GroupWriter(System.out);
+        }
+    }
+
+    /** Record the options at the start of ARGS and return the remaining
+     *  arguments. */
+    private String[] parseOptions(String[] args) {
+        int k;
+        for (k = 0; k < args.length && args[k].startsWith("--"); k += 1) {
+            switch (args[k]) {
+            case "--parallel":
+                _pool = ForkJoinPool.commonPool();
+                break;
+            case "--compile":
+                _compile = true;
+                break;
+            case "--raw":
+                _raw = true;
+                break;
+            case "--stats":
+                Metrics.enable(null);
+                break;
+            default:
+                if (args[k].startsWith("--stats=")) {
+                    Metrics.enable(args[k].substring("--stats=".length()));
+                    break;
+                }
+                throw error("unknown option %s", args[k]);
+            }
+        }
+        return Arrays.copyOfRange(args, k, args.length);
+    }
+
+    /** Open the configuration file named NAME, as _compiledConfig if it
+     *  is compiled and otherwise as _config. */
+    private void openConfig(String name) {
+        _configName = name;
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(Paths.get(name));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+        if (CompiledConfig.isCompiled(channel)) {
+            _compiledConfig = channel;
+        } else {
+            try {
+                channel.close();
+            } catch (IOException excp) {
+                throw error("could not open %s", name);
+            }
+            _config = getInput(name);
         }
     }
 
@@ -66,11 +262,47 @@ public final class Main {
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a LineReader reading from the file named NAME. */
+    private LineReader getLines(String name) {
         try {
-            return new PrintStream(new File(name));
-        } catch (IOException excp) {
+            return new LineReader(FileChannel.open(Paths.get(name)));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a stream of the bytes of the file named NAME. */
+    private InputStream getByteInput(String name) {
+        try {
+            return Files.newInputStream(Paths.get(name));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a stream writing to the file named NAME, which is created
+     *  or emptied. */
+    private OutputStream getByteOutput(String name) {
+        try {
+            return Files.newOutputStream(Paths.get(name));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a GroupWriter writing to the file named NAME. */
+    private GroupWriter getOutput(String name) {
+        return new GroupWriter(getChannel(name));
+    }
+
+    /** Return a channel writing to the file named NAME, which is created
+     *  or emptied. */
+    private FileChannel getChannel(String name) {
+        try {
+            return FileChannel.open(Paths.get(name),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException | InvalidPathException excp) {
             throw error("could not open %s", name);
         }
     }
@@ -79,11 +311,80 @@ public final class Main {
      *  file _config and apply it to the messages in _input, sending the
      *  results to _output. */
     private void process() {
+        long start = Metrics.enabled() ? System.nanoTime() : 0;
         Machine m = readConfig();
+        if (Metrics.enabled()) {
+            Metrics.configLoaded(System.nanoTime() - start);
+        }
+        if (_compile) {
+            CompiledConfig.write(m, _compiledOutput);
+            return;
+        }
+        if (_raw) {
+            processRaw(m);
+            return;
+        }
+        processInput(m);
+    }
+
+    /** Apply M to the messages in _input, sending the results to
+     *  _output. */
+    private void processInput(Machine m) {
+        Actions actions;
+        if (_pool == null) {
+            actions = new SequentialActions(m);
+        } else {
+            actions = new ParallelActions(m);
+        }
+        try {
+            try {
+                readInput(actions);
+            } catch (RuntimeException excp) {
+                actions.finish();
+                throw excp;
+            }
+            actions.finish();
+        } finally {
+            _output.flush();
+        }
+    }
+
+    /** Set up M according to the settings line _rawSettings and use it to
+     *  convert all the bytes of _rawInput, writing them to _rawOutput. */
+    private void processRaw(Machine m) {
+        if (m.alphabet().size() != ByteAlphabet.SIZE) {
+            throw error("--raw needs an alphabet of %d characters",
+                        ByteAlphabet.SIZE);
+        }
+        if (!_rawSettings.startsWith("*")) {
+            throw error("bad settings line: %s", _rawSettings);
+        }
+        setUp(m, _rawSettings);
+        byte[] buf = new byte[RAW_BUFFER];
+        try {
+            try (InputStream in = _rawInput) {
+                int n;
+                while ((n = in.read(buf)) >= 0) {
+                    m.convertRaw(buf, 0, buf, 0, n);
+                    if (Metrics.enabled()) {
+                        Metrics.characters(n);
+                    }
+                    _rawOutput.write(buf, 0, n);
+                }
+            }
+            _rawOutput.flush();
+        } catch (IOException excp) {
+            throw error("error converting bytes: %s", excp.getMessage());
+        }
+    }
+
+    /** Read the settings lines and messages in _input, passing each to
+     *  ACTIONS in order. */
+    private void readInput(Actions actions) {
         String line = _input.nextLine();
         while (_input.hasNextLine() || line.isEmpty()) {
             while (line.isEmpty()) {
-                _output.println();
+                actions.blankLine();
                 if (_input.hasNextLine()) {
                     line = _input.nextLine();
                 } else {
@@ -94,21 +395,20 @@ public final class Main {
                 break;
             }
             if (line.startsWith("*")) {
-                setUp(m, line);
+                actions.setUp(line);
             }
             if (_input.hasNextLine()) {
-                String msg = _input.nextLine().replaceAll(" ", "");
+                String msg = removeBlanks(_input.nextLine());
                 while (msg.isEmpty()) {
-                    _output.println();
-                    msg = _input.nextLine().replaceAll(" ", "");
+                    actions.blankLine();
+                    msg = removeBlanks(_input.nextLine());
                 }
-                while (msg.matches("[A-Za-z0-9]+")) {
-                    String out = m.convert(msg);
-                    printMessageLine(out);
+                while (isMessage(msg)) {
+                    actions.message(msg);
                     if (_input.hasNextLine()) {
                         msg = _input.nextLine();
                         if (!msg.startsWith("*")) {
-                            msg = msg.replaceAll(" ", "");
+                            msg = removeBlanks(msg);
                         }
                     } else {
                         break;
@@ -121,13 +421,265 @@ public final class Main {
         }
     }
 
+    /** Return LINE with all blanks removed. */
+    private static String removeBlanks(String line) {
+        int first = line.indexOf(' ');
+        if (first < 0) {
+            return line;
+        }
+        StringBuilder result = new StringBuilder(line.length());
+        result.append(line, 0, first);
+        for (int i = first + 1; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (c != ' ') {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return true iff LINE is a non-empty string of ASCII letters and
+     *  digits. */
+    private static boolean isMessage(String line) {
+        if (line.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+                  || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The effects of the lines of an input file, in the order read. */
+    private interface Actions {
+
+        /** Set up the machine according to the settings line SET. */
+        void setUp(String set);
+
+        /** Convert the message line MSG and print the result. */
+        void message(String msg);
+
+        /** Print an empty line. */
+        void blankLine();
+
+        /** Complete any output still pending.  Called once after the last
+         *  line has been read, or after reading fails. */
+        void finish();
+    }
+
+    /** Actions carried out immediately, one line at a time. */
+    private class SequentialActions implements Actions {
+
+        /** Actions applied to M. */
+        SequentialActions(Machine m) {
+            _machine = m;
+        }
+
+        @Override
+        public void setUp(String set) {
+            Main.this.setUp(_machine, set);
+        }
+
+        @Override
+        public void message(String msg) {
+            _buf = writeMessageLine(_machine, msg, null, _buf, _output);
+        }
+
+        @Override
+        public void blankLine() {
+            _output.newLine();
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        /** The machine doing the conversions. */
+        private final Machine _machine;
+        /** Scratch space for converted messages. */
+        private char[] _buf = new char[0];
+    }
+
+    /** Actions that convert each segment of the input (the lines from one
+     *  settings line to the next) on its own copy of the machine, in
+     *  parallel on _pool, and print the segments' output in input order.
+     *  The reading thread keeps a shadow machine in the state the
+     *  sequential run would have at each point, setting it up for every
+     *  settings line and advancing it past every message without
+     *  converting, so that each segment starts from exactly the state it
+     *  would have had. */
+    private class ParallelActions implements Actions {
+
+        /** Actions whose shadow machine is M. */
+        ParallelActions(Machine m) {
+            _shadow = m;
+            _segment = new Segment(m.copy());
+        }
+
+        @Override
+        public void setUp(String set) {
+            submit();
+            Main.this.setUp(_shadow, set);
+            _segment = new Segment(_shadow.copy());
+        }
+
+        @Override
+        public void message(String msg) {
+            _segment.add(msg);
+            long letters = msg.length();
+            for (int i = 0; i < msg.length(); i += 1) {
+                if (msg.charAt(i) == ' ') {
+                    letters -= 1;
+                }
+            }
+            _shadow.advance(letters);
+        }
+
+        @Override
+        public void blankLine() {
+            _segment.add(null);
+        }
+
+        @Override
+        public void finish() {
+            if (_failure != null) {
+                throw _failure;
+            }
+            submit();
+            while (!_pending.isEmpty()) {
+                writeOldest();
+            }
+        }
+
+        /** Start converting the current segment, if it has any lines, and
+         *  print finished segments until no more than MAX_PENDING remain
+         *  in progress. */
+        private void submit() {
+            if (!_segment.isEmpty()) {
+                _pending.add(_pool.submit(_segment));
+                _segment = new Segment(_shadow.copy());
+            }
+            while (_pending.size() > MAX_PENDING) {
+                writeOldest();
+            }
+        }
+
+        /** Wait for the oldest segment in progress and print its output,
+         *  rethrowing the error that stopped it, if any. */
+        private void writeOldest() {
+            Segment done = _pending.remove().join();
+            _output.write(done.output());
+            if (done.failure() != null) {
+                _failure = done.failure();
+                throw _failure;
+            }
+        }
+
+        /** The machine tracking the sequential state. */
+        private final Machine _shadow;
+        /** The segment currently being read. */
+        private Segment _segment;
+        /** Segments submitted and not yet printed, oldest first. */
+        private final ArrayDeque<ForkJoinTask<Segment>> _pending =
+            new ArrayDeque<>();
+        /** The error that stopped the output, if any. */
+        private RuntimeException _failure;
+    }
+
+    /** The lines of one stretch of input and, once called, their
+     *  output. */
+    private class Segment implements Callable<Segment> {
+
+        /** A segment whose messages are converted by MACHINE. */
+        Segment(Machine machine) {
+            _machine = machine;
+        }
+
+        /** Add the message line MSG, or an empty line if MSG is null. */
+        void add(String msg) {
+            _lines.add(msg);
+        }
+
+        /** Return true iff I have no lines. */
+        boolean isEmpty() {
+            return _lines.isEmpty();
+        }
+
+        @Override
+        public Segment call() {
+            try {
+                char[] buf = new char[0];
+                for (String msg : _lines) {
+                    if (msg != null) {
+                        buf = writeMessageLine(_machine, msg, _pool, buf,
+                                               _out);
+                    } else {
+                        _out.newLine();
+                    }
+                }
+            } catch (RuntimeException excp) {
+                _failure = excp;
+            }
+            _lines = null;
+            return this;
+        }
+
+        /** Return the output of the lines converted. */
+        GroupWriter output() {
+            return _out;
+        }
+
+        /** Return the error that stopped the conversion, or null. */
+        RuntimeException failure() {
+            return _failure;
+        }
+
+        /** The machine converting my messages. */
+        private final Machine _machine;
+        /** My message lines, with null for empty lines. */
+        private ArrayList<String> _lines = new ArrayList<>();
+        /** My output. */
+        private final GroupWriter _out = new GroupWriter();
+        /** The error that stopped the conversion, if any. */
+        private RuntimeException _failure;
+    }
+
     /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
+     *  file _config, recording an Events.ConfigLoad. */
     private Machine readConfig() {
+        Events.ConfigLoad event = new Events.ConfigLoad();
+        event.begin();
+        Machine m = parseConfig();
+        if (event.shouldCommit()) {
+            event.file = _configName;
+            event.compiled = _compiledConfig != null;
+            event.alphabetSize = m.alphabet().size();
+            event.slots = m.numRotors();
+            event.pawls = m.numPawls();
+            event.rotors = Events.names(m.allRotors());
+            event.commit();
+        }
+        return m;
+    }
+
+    /** Return an Enigma machine configured from the contents of
+     *  configuration file _config. */
+    private Machine parseConfig() {
+        if (_compiledConfig != null) {
+            Machine m = CompiledConfig.read(_compiledConfig);
+            _alphabet = m.alphabet();
+            return m;
+        }
         try {
             _config = _config.useDelimiter("\\s+");
             String alphabet = _config.next(".+");
-            if (alphabet.matches("[A-Z]-[A-Z]")) {
+            if (alphabet.equals(ByteAlphabet.NAME)) {
+                _alphabet = new ByteAlphabet();
+            } else if (alphabet.matches("[A-Z]-[A-Z]")) {
                 char first = alphabet.charAt(0);
                 char last = alphabet.charAt(alphabet.length() - 1);
                 _alphabet = new CharacterRange(first, last);
@@ -160,7 +712,9 @@ public final class Main {
             Permutation perm = new Permutation(cycle, _alphabet);
             String rotortype = description.substring(0, 1);
             if (rotortype.equals("M")) {
-                return new MovingRotor(name, perm, description.substring(1));
+                return new MovingRotor(name, perm, Permutation.unescape(
+                                           description.substring(1),
+                                           _alphabet));
             } else if (rotortype.equals("R")) {
                 return new Reflector(name, perm);
             } else {
@@ -174,68 +728,163 @@ public final class Main {
     /** Set M according to the specification given on SET,
      *  which must have the format specified in the assignment. */
     private void setUp(Machine m, String set) {
-        Scanner settings = new Scanner(set);
-        settings = settings.useDelimiter("\\s+");
-        if (settings.hasNext("\\*+")) {
-            settings.next("\\*+");
+        Events.SetUp event = new Events.SetUp();
+        event.begin();
+        Tokens settings = new Tokens(set);
+        if (isStars(settings.next())) {
             String[] rotors = new String[m.numRotors()];
             for (int i = 0; i < rotors.length; i++) {
                 rotors[i] = settings.next();
-            }
-            m.insertRotors(rotors);
-            int numMR = 0;
-            for (int i = 0; i < m.rotorsl().length; i++) {
-                if (m.rotorsl()[i] instanceof MovingRotor) {
-                    numMR += 1;
+                if (rotors[i] == null) {
+                    throw error("Too few rotors");
                 }
             }
-            if (m.numPawls() != numMR) {
+            m.insertRotors(rotors);
+            if (m.numPawls() != m.numMoving()) {
                 throw error("Wrong number of moving rotors");
             }
-            if (settings.hasNext(".+")) {
-                String setting = settings.next();
-                m.setRotors(setting);
-                if (setting.length() != m.numRotors() - 1) {
-                    throw error("Wrong setting length");
-                }
+            String setting = settings.next();
+            if (setting != null) {
+                m.setRotors(Permutation.unescape(setting, _alphabet));
             }
-            if ((settings.hasNext("(\\(.+\\))*"))) {
-                String cycles = "";
-                while (settings.hasNext("(\\(.+\\))*")) {
-                    cycles += settings.next("(\\(.+\\))*");
+            StringBuilder cycles = null;
+            for (String cycle = settings.next(); isCycle(cycle);
+                 cycle = settings.next()) {
+                if (cycles == null) {
+                    cycles = new StringBuilder();
                 }
-                Permutation plugboard = new Permutation(cycles, _alphabet);
-                m.setPlugboard(plugboard);
+                cycles.append(cycle);
+            }
+            if (cycles != null) {
+                m.setPlugboard(new Permutation(cycles.toString(),
+                                               _alphabet));
             }
         }
+        if (Metrics.enabled()) {
+            Metrics.setUp();
+        }
+        if (event.shouldCommit()) {
+            event.settings = set;
+            event.alphabetSize = m.alphabet().size();
+            event.rotors = Events.names(m.rotorsl());
+            event.commit();
+        }
     }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        String result = "";
-        for (int i = 0; i < msg.length(); i++) {
-            if (i % 5 == 0 && i != 0) {
-                result = result + msg.substring(i - 5, i) + " ";
+    /** Return true iff TOKEN is a non-empty string of asterisks. */
+    private static boolean isStars(String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i += 1) {
+            if (token.charAt(i) != '*') {
+                return false;
             }
-            if (msg.length() - i < 6 && i % 5 == 0) {
-                result = result + msg.substring(i);
-                break;
+        }
+        return true;
+    }
+
+    /** Return true iff TOKEN is a parenthesized cycle (or several run
+     *  together) in a settings line. */
+    private static boolean isCycle(String token) {
+        return token != null && token.length() > 2 && token.charAt(0) == '('
+            && token.charAt(token.length() - 1) == ')';
+    }
+
+    /** The blank-separated tokens of a line, read one at a time. */
+    private static class Tokens {
+
+        /** The tokens of LINE. */
+        Tokens(String line) {
+            _line = line;
+        }
+
+        /** Return my next token, or null if there are no more. */
+        String next() {
+            int n = _line.length();
+            int i = _next;
+            while (i < n && Character.isWhitespace(_line.charAt(i))) {
+                i += 1;
+            }
+            int start = i;
+            while (i < n && !Character.isWhitespace(_line.charAt(i))) {
+                i += 1;
             }
+            _next = i;
+            return start == i ? null : _line.substring(start, i);
         }
-        _output.println(result);
+
+        /** The line being read. */
+        private final String _line;
+        /** Index in _line of the first character not yet read. */
+        private int _next;
     }
 
+    /** Convert MSG with M, on POOL if it is not null, and write the
+     *  result to OUT in groups of five (except that the last group may
+     *  have fewer letters).  BUF is scratch space, replaced by a larger
+     *  array if needed; return the scratch space used. */
+    private static char[] writeMessageLine(Machine m, String msg,
+                                           ForkJoinPool pool, char[] buf,
+                                           GroupWriter out) {
+        if (buf.length < msg.length()) {
+            buf = new char[Math.max(msg.length(), 2 * buf.length)];
+        }
+        long start = Metrics.enabled() ? System.nanoTime() : 0;
+        int len = m.convert(msg, buf, pool);
+        if (Metrics.enabled()) {
+            Metrics.message(System.nanoTime() - start);
+        }
+        out.writeGroups(buf, 0, len);
+        return buf;
+    }
+
+    /** Size of the buffer of bytes converted at a time in raw mode. */
+    static final int RAW_BUFFER = 1 << 20;
+
+    /** Most segments converted concurrently before the reader waits for
+     *  the oldest to be printed. */
+    static final int MAX_PENDING =
+        2 * Runtime.getRuntime().availableProcessors() + 1;
+
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
 
     /** Source of input messages. */
-    private Scanner _input;
+    private LineReader _input;
 
-    /** Source of machine configuration. */
+    /** Name of the configuration file. */
+    private String _configName;
+
+    /** Source of machine configuration, unless it is compiled. */
     private Scanner _config;
 
+    /** Compiled machine configuration, or null. */
+    private FileChannel _compiledConfig;
+
+    /** True iff the configuration is to be compiled rather than used. */
+    private boolean _compile;
+
+    /** Destination of the compiled configuration. */
+    private FileChannel _compiledOutput;
+
+    /** True iff the input is to be converted as raw bytes. */
+    private boolean _raw;
+
+    /** The settings line for raw conversion. */
+    private String _rawSettings;
+
+    /** Source of bytes for raw conversion. */
+    private InputStream _rawInput;
+
+    /** Destination of raw conversion. */
+    private OutputStream _rawOutput;
+
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private GroupWriter _output;
+
+    /** Pool on which long messages are converted, or null to convert
+     *  everything on the calling thread. */
+    private ForkJoinPool _pool;
 
 }
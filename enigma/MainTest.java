@@ -0,0 +1,298 @@
+package enigma;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Main class, run in process
+ *  through Main.run.
+ *  @author Wenhan Jin
+ */
+public class MainTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /** The configuration used by inputs that have none of their own. */
+    private static final String DEFAULT_CONF =
+        "testing/correct/default.conf";
+
+    /** The exit code, error output and output file contents of one run
+     *  of Main. */
+    private static class Outcome {
+        /** Exit code. */
+        private int code;
+        /** What was printed on the standard error. */
+        private String err;
+        /** Contents of the output file. */
+        private String out;
+        /** Contents of the output file, as bytes. */
+        private byte[] bytes;
+    }
+
+    /** Return a new temporary file, deleted after the test. */
+    private Path tempFile() throws IOException {
+        Path result = Files.createTempFile("enigma", ".tmp");
+        _temps.add(result);
+        return result;
+    }
+
+    /** Delete the temporary files. */
+    @After
+    public void deleteTemps() throws IOException {
+        for (Path p : _temps) {
+            Files.deleteIfExists(p);
+        }
+    }
+
+    /** Run Main with OPTIONS followed by ARGS and an output file, and
+     *  return the outcome. */
+    private Outcome run(String[] options, String... args)
+        throws IOException {
+        Path out = tempFile();
+        String[] all = new String[options.length + args.length + 1];
+        System.arraycopy(options, 0, all, 0, options.length);
+        System.arraycopy(args, 0, all, options.length, args.length);
+        all[all.length - 1] = out.toString();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Outcome result = new Outcome();
+        result.code = Main.run(new PrintStream(err, true, "UTF-8"), all);
+        result.err = err.toString(StandardCharsets.UTF_8);
+        result.bytes = Files.readAllBytes(out);
+        result.out = new String(result.bytes, StandardCharsets.UTF_8);
+        return result;
+    }
+
+    /** Check that Main gives the same output, error message and exit code
+     *  for the input file INP with configuration CONF with --parallel as
+     *  without, and return the outcome. */
+    private Outcome checkParallel(String conf, String inp)
+        throws IOException {
+        Outcome seq = run(new String[0], conf, inp);
+        Outcome par = run(new String[] {"--parallel"}, conf, inp);
+        assertEquals(msg(inp, "exit codes differ"), seq.code, par.code);
+        assertEquals(msg(inp, "errors differ"), seq.err, par.err);
+        assertEquals(msg(inp, "outputs differ"), seq.out, par.out);
+        return seq;
+    }
+
+    /** As for checkParallel(CONF, INP), with the input INPUT. */
+    private Outcome checkParallelInput(String conf, String input)
+        throws IOException {
+        Path inp = tempFile();
+        Files.write(inp, input.getBytes(StandardCharsets.UTF_8));
+        return checkParallel(conf, inp.toString());
+    }
+
+    /** Return input with SEGMENTS settings lines, each followed by some
+     *  messages, in which the settings lines alternate among complete
+     *  ones, ones with no plugboard (which keep the last plugboard), ones
+     *  with no setting and ones that are ignored (so that the machine
+     *  continues from the previous segment).  If BAD >= 0, the settings
+     *  line of segment BAD is replaced by BADLINE. */
+    private String segments(int segments, int bad, String badLine) {
+        String[] settings = {
+            "* B Beta I II III AXLE (AB) (CD)",
+            "* C Gamma V IV I QEVJ",
+            "* B Beta II IV III",
+            "*ignored, so the machine carries on",
+        };
+        StringBuilder input = new StringBuilder();
+        for (int k = 0; k < segments; k += 1) {
+            if (k == bad) {
+                input.append(badLine).append('\n');
+            } else {
+                input.append(settings[k % settings.length]).append('\n');
+            }
+            for (int j = 0; j <= k % 3; j += 1) {
+                input.append("From his shoulder Hiawatha took the camera "
+                             + (char) ('A' + k % 26) + "\n");
+                input.append("of rosewood made of sliding folding "
+                             + "rosewood\n");
+            }
+            if (k % 5 == 2) {
+                input.append('\n');
+            }
+        }
+        return input.toString();
+    }
+
+    /** Return a temporary configuration file containing CONF. */
+    private String confFile(String conf) throws IOException {
+        Path result = tempFile();
+        Files.write(result, conf.getBytes(StandardCharsets.UTF_8));
+        return result.toString();
+    }
+
+    /** Return CH as it is written in a configuration: itself if it is
+     *  printable ASCII other than a parenthesis or backslash, and
+     *  otherwise escaped as \xNN. */
+    private static String confChar(int ch) {
+        if (ch > ' ' && ch < '\u007f' && "()\\".indexOf(ch) < 0) {
+            return String.valueOf((char) ch);
+        }
+        return String.format("\\x%02x", ch);
+    }
+
+    /** Return a configuration over the byte alphabet with a reflector R
+     *  and moving rotors M0, M1 and M2, whose cycles wire every byte. */
+    private static String byteConf() {
+        int n = ByteAlphabet.SIZE;
+        StringBuilder conf = new StringBuilder(ByteAlphabet.NAME);
+        conf.append("\n 4 3\n R R ");
+        for (int i = 0; i < n; i += 2) {
+            conf.append('(').append(confChar(i)).append(confChar(i + 1))
+                .append(')');
+        }
+        for (int k = 0; k < 3; k += 1) {
+            conf.append("\n M").append(k).append(" M\\x00\\x80 (");
+            for (int i = 0; i < n; i += 1) {
+                conf.append(confChar((i * (2 * k + 3)) % n));
+            }
+            conf.append(')');
+        }
+        return conf.append('\n').toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkParallelSamples() throws IOException {
+        for (File f : new File("enigma").listFiles()) {
+            String name = f.getPath();
+            if (!name.endsWith(".inp")) {
+                continue;
+            }
+            File conf = new File(name.replaceFirst("\\.inp$", ".conf"));
+            checkParallel(conf.exists() ? conf.getPath() : DEFAULT_CONF,
+                          name);
+        }
+        for (String dir : new String[] {"testing/correct", "testing/error"}) {
+            for (File f : new File(dir).listFiles()) {
+                if (f.getName().endsWith(".inp")) {
+                    checkParallel(dir + "/default.conf", f.getPath());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checkParallelSegmentState() throws IOException {
+        Outcome seq = checkParallelInput(DEFAULT_CONF, segments(12, -1, ""));
+        assertEquals(0, seq.code);
+    }
+
+    @Test
+    public void checkParallelManySegments() throws IOException {
+        int n = 3 * Main.MAX_PENDING + 5;
+        Outcome seq = checkParallelInput(DEFAULT_CONF, segments(n, -1, ""));
+        assertEquals(0, seq.code);
+    }
+
+    @Test
+    public void checkParallelBadSettings() throws IOException {
+        int n = 2 * Main.MAX_PENDING + 3;
+        String bad = "* B Beta I II Gamma AAAA";
+        Outcome seq =
+            checkParallelInput(DEFAULT_CONF, segments(n, n / 2, bad));
+        assertEquals(1, seq.code);
+        assertFalse(seq.out.isEmpty());
+        assertEquals(String.format("Error: Wrong number of moving rotors%n"),
+                     seq.err);
+    }
+
+    @Test
+    public void checkParallelBadMessage() throws IOException {
+        int n = 2 * Main.MAX_PENDING + 3;
+        String input = segments(n, -1, "");
+        int middle = input.indexOf("\nof rosewood", input.length() / 2) + 1;
+        input = input.substring(0, middle) + "camera with 1 digit\n"
+            + input.substring(middle);
+        Outcome seq = checkParallelInput(DEFAULT_CONF, input);
+        assertEquals(1, seq.code);
+        assertTrue(seq.err, seq.err.startsWith("Error: "));
+        assertFalse(seq.out.isEmpty());
+    }
+
+    @Test
+    public void checkRawRoundTrip() throws IOException {
+        String conf = confFile(byteConf());
+        byte[] data = new byte[3 * Main.RAW_BUFFER / 2];
+        new Random(256).nextBytes(data);
+        for (int i = 0; i < 256; i += 1) {
+            data[i] = (byte) i;
+        }
+        Path plain = tempFile();
+        Files.write(plain, data);
+        String[] raw = {"--raw"};
+        String settings = "* R M0 M1 M2 \\x20(\\xff";
+        Outcome enc = run(raw, conf, settings, plain.toString());
+        assertEquals(enc.err, 0, enc.code);
+        assertEquals(data.length, enc.bytes.length);
+        assertFalse(msg("raw", "nothing encrypted"),
+                    Arrays.equals(data, enc.bytes));
+
+        Path cipher = tempFile();
+        Files.write(cipher, enc.bytes);
+        Outcome dec = run(raw, conf, settings, cipher.toString());
+        assertEquals(dec.err, 0, dec.code);
+        assertArrayEquals(data, dec.bytes);
+    }
+
+    @Test
+    public void checkRawErrors() throws IOException {
+        Path plain = tempFile();
+        Files.write(plain, new byte[] {0, 1, 2});
+        String[] raw = {"--raw"};
+        Outcome letters = run(raw, DEFAULT_CONF, "* B Beta I II III AAAA",
+                              plain.toString());
+        assertEquals(1, letters.code);
+        assertEquals(String.format("Error: --raw needs an alphabet of 256 "
+                                   + "characters%n"), letters.err);
+
+        String conf = confFile(ByteAlphabet.NAME
+                               + "\n 3 2\n R R (ab)(cd)\n M0 Ma (abc)"
+                               + "\n M1 Ma (xy)(zx)\n");
+        Outcome bad = run(raw, conf, "* R M0 M1 aa", plain.toString());
+        assertEquals(1, bad.code);
+        assertEquals(String.format("Error: character x appears in more than "
+                                   + "one cycle%n"), bad.err);
+    }
+
+    @Test
+    public void checkStatsAfterError() throws IOException {
+        Path dir = Files.createTempDirectory("enigma");
+        Files.delete(dir);
+        String stats = "--stats=" + dir.resolve("stats.json");
+        try {
+            Outcome bad = run(new String[] {stats}, DEFAULT_CONF,
+                              "testing/error/fewrotors.inp");
+            assertEquals(1, bad.code);
+            assertEquals(String.format("Error: Too few rotors%n"
+                                       + "Error: could not write %s%n",
+                                       dir.resolve("stats.json")),
+                         bad.err);
+        } finally {
+            Metrics.disable();
+        }
+    }
+
+    /** Temporary files to delete. */
+    private final ArrayList<Path> _temps = new ArrayList<>();
+}
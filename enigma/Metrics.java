@@ -0,0 +1,168 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import static enigma.EnigmaException.*;
+
+/** Counters and latency histograms for a run of the simulator: the
+ *  characters converted, the messages and settings lines processed, the
+ *  time taken to load the configuration and the time taken to convert
+ *  each message.  Recording is off unless enable is called (by Main's
+ *  --stats option); each place that records tests enabled() first, so a
+ *  run without statistics pays for one read of a volatile static field
+ *  and nothing else.  The counters are LongAdders and the histograms are
+ *  Histograms, so the threads converting in parallel do not contend.
+ *  @author Wenhan Jin
+ */
+final class Metrics {
+
+    /** Not instantiable. */
+    private Metrics() {
+    }
+
+    /** Start recording.  At report(), print a summary on the standard
+     *  error if FILE is null, and otherwise write one as JSON to the file
+     *  named FILE.  Must be called before any conversion starts. */
+    static void enable(String file) {
+        _file = file;
+        _enabled = true;
+    }
+
+    /** Stop recording and forget everything recorded. */
+    static void disable() {
+        _enabled = false;
+        _file = null;
+        CHARACTERS.reset();
+        MESSAGES.reset();
+        SETUPS.reset();
+        CONFIG_LOAD.reset();
+        MESSAGE_LATENCY.reset();
+    }
+
+    /** Return true iff recording is on. */
+    static boolean enabled() {
+        return _enabled;
+    }
+
+    /** Record that N characters were converted. */
+    static void characters(long n) {
+        CHARACTERS.add(n);
+    }
+
+    /** Record that a message was converted in NANOS nanoseconds. */
+    static void message(long nanos) {
+        MESSAGES.increment();
+        MESSAGE_LATENCY.record(nanos);
+    }
+
+    /** Record that a settings line was applied. */
+    static void setUp() {
+        SETUPS.increment();
+    }
+
+    /** Record that the configuration took NANOS nanoseconds to load. */
+    static void configLoaded(long nanos) {
+        CONFIG_LOAD.record(nanos);
+    }
+
+    /** Return the number of characters converted. */
+    static long characters() {
+        return CHARACTERS.sum();
+    }
+
+    /** Return the number of messages converted. */
+    static long messages() {
+        return MESSAGES.sum();
+    }
+
+    /** Return the number of settings lines applied. */
+    static long setUps() {
+        return SETUPS.sum();
+    }
+
+    /** Return the histogram of configuration load times. */
+    static Histogram configLoad() {
+        return CONFIG_LOAD;
+    }
+
+    /** Return the histogram of message conversion times. */
+    static Histogram messageLatency() {
+        return MESSAGE_LATENCY;
+    }
+
+    /** If recording, print or write the summary requested of enable. */
+    static void report() {
+        if (!_enabled) {
+            return;
+        }
+        if (_file == null) {
+            summarize(System.err);
+            return;
+        }
+        try {
+            Files.write(Paths.get(_file),
+                        json().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not write %s", _file);
+        }
+    }
+
+    /** Print a summary for people on OUT. */
+    static void summarize(PrintStream out) {
+        Histogram h = MESSAGE_LATENCY;
+        out.printf("characters converted: %d%n", characters());
+        out.printf("messages converted: %d%n", messages());
+        out.printf("settings lines applied: %d%n", setUps());
+        out.printf("configuration load: %.3f ms%n",
+                   CONFIG_LOAD.sum() / 1e6);
+        out.printf("message latency (us): mean %.1f, p50 %.1f, p90 %.1f, "
+                   + "p99 %.1f, max %.1f%n",
+                   h.mean() / 1e3, h.percentile(0.5) / 1e3,
+                   h.percentile(0.9) / 1e3, h.percentile(0.99) / 1e3,
+                   h.max() / 1e3);
+        if (h.sum() > 0) {
+            out.printf("conversion rate: %.0f characters/s%n",
+                       characters() * 1e9 / h.sum());
+        }
+    }
+
+    /** Return the summary as a JSON object, with times in
+     *  nanoseconds. */
+    static String json() {
+        Histogram h = MESSAGE_LATENCY;
+        return String.format(Locale.ROOT,
+                             "{\"characters\": %d, \"messages\": %d, "
+                             + "\"setups\": %d, \"configLoadNanos\": %d, "
+                             + "\"messageLatencyNanos\": {\"count\": %d, "
+                             + "\"sum\": %d, \"mean\": %.1f, \"p50\": %d, "
+                             + "\"p90\": %d, \"p99\": %d, \"max\": %d}}%n",
+                             characters(), messages(), setUps(),
+                             CONFIG_LOAD.sum(), h.count(), h.sum(),
+                             h.mean(), h.percentile(0.5),
+                             h.percentile(0.9), h.percentile(0.99),
+                             h.max());
+    }
+
+    /** Characters converted. */
+    private static final LongAdder CHARACTERS = new LongAdder();
+    /** Messages converted. */
+    private static final LongAdder MESSAGES = new LongAdder();
+    /** Settings lines applied. */
+    private static final LongAdder SETUPS = new LongAdder();
+    /** Configuration load times. */
+    private static final Histogram CONFIG_LOAD = new Histogram();
+    /** Message conversion times. */
+    private static final Histogram MESSAGE_LATENCY = new Histogram();
+
+    /** True iff recording is on. */
+    private static volatile boolean _enabled;
+    /** Where to write the summary, or null for the standard error. */
+    private static volatile String _file;
+}
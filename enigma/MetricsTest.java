@@ -0,0 +1,96 @@
+package enigma;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static enigma.MachineTest.navalMachine;
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Metrics and Histogram classes.
+ *  @author Wenhan Jin
+ */
+public class MetricsTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /** Leave recording off for other tests. */
+    @After
+    public void disable() {
+        Metrics.disable();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkBuckets() {
+        int last = -1;
+        for (long v = 0; v < 100000; v += 1) {
+            int b = Histogram.bucket(v);
+            assertTrue(msg("bucket", "bucket of %d out of order", v),
+                       b == last || b == last + 1);
+            assertTrue(msg("bucket", "%d above its bucket", v),
+                       v <= Histogram.highest(b));
+            last = b;
+        }
+        int top = Histogram.bucket(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Histogram.highest(top));
+    }
+
+    @Test
+    public void checkPercentiles() {
+        Histogram h = new Histogram();
+        Random rand = new Random(21);
+        long[] values = new long[10001];
+        for (int i = 0; i < values.length; i += 1) {
+            values[i] = (long) (rand.nextDouble() * 1e7);
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, h.count());
+        assertEquals(values[values.length - 1], h.max());
+        for (double q : new double[] {0.5, 0.9, 0.99}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long approx = h.percentile(q);
+            assertTrue(msg("percentile", "p%.0f %d below %d", q * 100,
+                           approx, exact),
+                       approx >= exact);
+            assertTrue(msg("percentile", "p%.0f %d too far from %d",
+                           q * 100, approx, exact),
+                       approx <= exact + exact / Histogram.SUB_BUCKETS + 1);
+        }
+        h.reset();
+        assertEquals(0, h.count());
+        assertEquals(0, h.percentile(0.5));
+    }
+
+    @Test
+    public void checkDisabledRecordsNothing() {
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        m.convert("HELLOWORLD");
+        assertEquals(0, Metrics.characters());
+    }
+
+    @Test
+    public void checkCountsCharacters() {
+        Metrics.enable(null);
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        m.convert("HELLO WORLD");
+        m.convert("ABC");
+        assertEquals(13, Metrics.characters());
+        Metrics.message(1500);
+        Metrics.setUp();
+        assertEquals(1, Metrics.messages());
+        assertEquals(1, Metrics.setUps());
+        String json = Metrics.json();
+        assertTrue(json, json.contains("\"characters\": 13"));
+        assertTrue(json, json.contains("\"max\": 1500"));
+    }
+}
@@ -47,17 +47,17 @@ public class MoreEnigmaTest {
         mach.insertRotors(rotors);
         mach.setRotors(setting);
 
-        assertEquals("AAAA", getSetting(ac, machineRotors));
+        assertEquals("AAAA", getSetting(ac, mach));
         mach.convert('a');
-        assertEquals("AAAB", getSetting(ac, machineRotors));
+        assertEquals("AAAB", getSetting(ac, mach));
     }
 
     /** Helper method to get the String
-     * representation of the current Rotor settings */
-    private String getSetting(Alphabet alph, Rotor[] machineRotors) {
+     * representation of the current Rotor settings of MACH */
+    private String getSetting(Alphabet alph, Machine mach) {
         String currSetting = "";
-        for (Rotor r : machineRotors) {
-            currSetting += alph.toChar(r.setting());
+        for (int i = 0; i < mach.numRotors(); i++) {
+            currSetting += alph.toChar(mach.setting(i));
         }
         return currSetting;
     }
@@ -17,33 +17,56 @@ class MovingRotor extends Rotor {
         this.permutation = perm;
         this.notches = notch1;
         this.notch = notches.toCharArray();
+        this.notchAt = new boolean[size()];
+        for (char c : notch) {
+            if (alphabet().contains(c)) {
+                notchAt[alphabet().toInt(c)] = true;
+            }
+        }
+        this.toNotch = new int[size()];
+        int dist = -1;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int k = size() - 1; k >= 0; k--) {
+                if (notchAt[k]) {
+                    dist = 0;
+                } else if (dist >= 0) {
+                    dist += 1;
+                }
+                toNotch[k] = dist;
+            }
+        }
+    }
+
+    /** Return the characters at which I have notches. */
+    String notches() {
+        return notches;
     }
 
     @Override
-    boolean atNotch() {
-        for (char i : notch) {
-            if (i == alphabet().toChar(this.setting())) {
-                return true;
-            }
-        }
-        return false;
+    boolean atNotch(int posn) {
+        return notchAt[posn];
     }
 
     @Override
-    boolean rotates() {
-        return true;
+    int toNotch(int posn) {
+        return toNotch[posn];
     }
 
     @Override
-    void advance() {
-        super.set(permutation.wrap(super.setting() + 1));
+    boolean rotates() {
+        return true;
     }
 
     /** NOTCHES is a string that equals to the input notch1. */
-    private String notches;
+    private final String notches;
     /** PERMUTATION is a string that equals to the input perm. */
-    private Permutation permutation;
+    private final Permutation permutation;
     /** NOTCH is an array of chars that returned by toCharArray of notches. */
-    private char[] notch;
+    private final char[] notch;
+    /** NOTCHAT[K] is true iff position K of my alphabet is a notch. */
+    private final boolean[] notchAt;
+    /** TONOTCH[K] is the number of advances from position K to the
+     *  nearest notch at or after K, or -1 if I have no notches. */
+    private final int[] toNotch;
 
 }
@@ -24,10 +24,10 @@ public class MovingRotorTest {
     private String alpha = UPPER_STRING;
 
     /** Check that rotor has an alphabet whose size is that of
-     *  FROMALPHA and TOALPHA and that maps each character of
-     *  FROMALPHA to the corresponding character of FROMALPHA, and
-     *  vice-versa. TESTID is used in error messages. */
-    private void checkRotor(String testId,
+     *  FROMALPHA and TOALPHA and that, at position POSN, maps each
+     *  character of FROMALPHA to the corresponding character of
+     *  FROMALPHA, and vice-versa. TESTID is used in error messages. */
+    private void checkRotor(String testId, int posn,
                             String fromAlpha, String toAlpha) {
         int N = fromAlpha.length();
         assertEquals(testId + " (wrong length)", N, rotor.size());
@@ -36,10 +36,10 @@ public class MovingRotorTest {
             int ci = alpha.indexOf(c), ei = alpha.indexOf(e);
             assertEquals(msg(testId,
                     "wrong translation of %d (%c)", ci, c),
-                    ei, rotor.convertForward(ci));
+                    ei, rotor.convertForward(ci, posn));
             assertEquals(msg(testId,
                     "wrong inverse of %d (%c)", ei, e),
-                    ci, rotor.convertBackward(ei));
+                    ci, rotor.convertBackward(ei, posn));
         }
     }
 
@@ -56,21 +56,52 @@ public class MovingRotorTest {
     @Test
     public void checkRotorAtA() {
         setRotor("I", NAVALA, "");
-        checkRotor("Rotor I (A)", UPPER_STRING, NAVALA_MAP.get("I"));
+        checkRotor("Rotor I (A)", 0, UPPER_STRING, NAVALA_MAP.get("I"));
     }
 
     @Test
     public void checkRotorAdvance() {
         setRotor("I", NAVALA, "");
-        rotor.advance();
-        checkRotor("Rotor I advanced", UPPER_STRING, NAVALB_MAP.get("I"));
+        checkRotor("Rotor I advanced", 1, UPPER_STRING,
+                   NAVALB_MAP.get("I"));
     }
 
     @Test
     public void checkRotorSet() {
         setRotor("I", NAVALA, "");
-        rotor.set(25);
-        checkRotor("Rotor I set", UPPER_STRING, NAVALZ_MAP.get("I"));
+        checkRotor("Rotor I set", 25, UPPER_STRING, NAVALZ_MAP.get("I"));
+    }
+
+    @Test
+    public void checkEverySetting() {
+        setRotor("I", NAVALA, "");
+        Permutation perm = rotor.permutation();
+        for (int s = 0; s < 26; s += 1) {
+            for (int p = 0; p < 26; p += 1) {
+                int e = perm.wrap(perm.permute(perm.wrap(p + s)) - s);
+                assertEquals(msg("Rotor I", "setting %d, input %d", s, p),
+                             e, rotor.convertForward(p, s));
+                assertEquals(msg("Rotor I", "setting %d, inverse %d", s, e),
+                             p, rotor.convertBackward(e, s));
+            }
+        }
+    }
+
+    @Test
+    public void checkLargeAlphabetRotor() {
+        char[] chars = new char[1000];
+        for (int i = 0; i < chars.length; i += 1) {
+            chars[i] = (char) ('\u4e00' + i);
+        }
+        Alphabet big = new ExtendedAlphabet(chars);
+        rotor = new MovingRotor("Big", new Permutation(
+                "(" + chars[0] + chars[1] + chars[999] + ")", big), "");
+        assertEquals(1, rotor.convertForward(0, 0));
+        assertEquals(0, rotor.convertForward(999, 0));
+        assertEquals(2, rotor.convertForward(1, 999));
+        assertEquals(0, rotor.convertForward(2, 999));
+        assertEquals(2, rotor.convertBackward(0, 999));
+        assertEquals(1, rotor.convertBackward(2, 999));
     }
 
 }
@@ -0,0 +1,185 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** Log-probabilities of the n-grams (bigrams, trigrams, quadgrams, ...)
+ *  of a language over an alphabet, held in one flat array indexed by the
+ *  n-gram read as a number in base alphabet size.  N-grams never seen get
+ *  a small floor probability rather than zero.
+ *  @author Wenhan Jin
+ */
+class NgramTable {
+
+    /** A table of n-grams of length ORDER over ALPHABET, where the n-gram
+     *  with index K (see index) was seen COUNTS[K] times. */
+    NgramTable(Alphabet alphabet, int order, long[] counts) {
+        _alphabet = alphabet;
+        _order = order;
+        if (order < 1) {
+            throw error("n-grams must have at least one character");
+        }
+        if (counts.length != entries(alphabet.size(), order)) {
+            throw error("wrong number of n-gram counts");
+        }
+        long total = 0;
+        for (long count : counts) {
+            if (count < 0) {
+                throw error("negative n-gram count");
+            }
+            total += count;
+        }
+        if (total == 0) {
+            throw error("no n-grams counted");
+        }
+        _logProbs = new float[counts.length];
+        float floor = (float) Math.log10(FLOOR / total);
+        for (int k = 0; k < counts.length; k += 1) {
+            _logProbs[k] = counts[k] == 0 ? floor
+                : (float) Math.log10((double) counts[k] / total);
+        }
+    }
+
+    /** Return the table read from the file named NAME, whose lines each
+     *  hold an n-gram over ALPHABET and the number of times it was seen,
+     *  separated by blanks (as in "TION 13168375").  All the n-grams must
+     *  have the same length; blank lines are ignored. */
+    static NgramTable read(String name, Alphabet alphabet) {
+        int n = alphabet.size();
+        int order = 0;
+        long[] counts = null;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(name),
+                                     StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields[0].isEmpty()) {
+                    continue;
+                }
+                if (fields.length != 2) {
+                    throw error("bad n-gram line: %s", line);
+                }
+                String gram = fields[0].toUpperCase();
+                if (counts == null) {
+                    order = gram.length();
+                    counts = new long[entries(n, order)];
+                } else if (gram.length() != order) {
+                    throw error("n-grams of different lengths in %s", name);
+                }
+                int k = 0;
+                for (int j = 0; j < order; j += 1) {
+                    char c = gram.charAt(j);
+                    if (!alphabet.contains(c)) {
+                        throw error("character %c not in alphabet", c);
+                    }
+                    k = k * n + alphabet.toInt(c);
+                }
+                try {
+                    counts[k] += Long.parseLong(fields[1]);
+                } catch (NumberFormatException excp) {
+                    throw error("bad n-gram count: %s", fields[1]);
+                }
+            }
+        } catch (IOException excp) {
+            throw error("could not read %s", name);
+        }
+        if (counts == null) {
+            throw error("no n-grams in %s", name);
+        }
+        return new NgramTable(alphabet, order, counts);
+    }
+
+    /** Return the number of n-grams of length ORDER over an alphabet of
+     *  N characters, checking that it is small enough to tabulate. */
+    private static int entries(int n, int order) {
+        long entries = 1;
+        for (int j = 0; j < order; j += 1) {
+            entries *= n;
+            if (entries > MAX_ENTRIES) {
+                throw error("n-gram table too large");
+            }
+        }
+        return (int) entries;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the length of my n-grams. */
+    int order() {
+        return _order;
+    }
+
+    /** Return the index of the n-gram TEXT[FROM .. FROM + order() - 1],
+     *  whose entries are indices in my alphabet. */
+    int index(int[] text, int from) {
+        int n = _alphabet.size();
+        int k = 0;
+        for (int j = from; j < from + _order; j += 1) {
+            k = k * n + text[j];
+        }
+        return k;
+    }
+
+    /** Return the log (base 10) probability of the n-gram with index
+     *  K. */
+    float logProb(int k) {
+        return _logProbs[k];
+    }
+
+    /** Return the sum of the log-probabilities of the n-grams of TEXT, an
+     *  array of indices in my alphabet. */
+    double score(int[] text) {
+        double sum = 0;
+        for (int s = 0; s + _order <= text.length; s += 1) {
+            sum += _logProbs[index(text, s)];
+        }
+        return sum;
+    }
+
+    /** Return the table of n-grams of length ORDER counted in TEXT, of
+     *  which the characters in ALPHABET are counted (in upper case) and
+     *  the rest ignored. */
+    static NgramTable count(Alphabet alphabet, int order, String text) {
+        int[] letters = new int[text.length()];
+        int len = 0;
+        for (int i = 0; i < text.length(); i += 1) {
+            char c = Character.toUpperCase(text.charAt(i));
+            if (alphabet.contains(c)) {
+                letters[len] = alphabet.toInt(c);
+                len += 1;
+            }
+        }
+        letters = Arrays.copyOf(letters, len);
+        int n = alphabet.size();
+        long[] counts = new long[entries(n, order)];
+        for (int s = 0; s + order <= len; s += 1) {
+            int k = 0;
+            for (int j = s; j < s + order; j += 1) {
+                k = k * n + letters[j];
+            }
+            counts[k] += 1;
+        }
+        return new NgramTable(alphabet, order, counts);
+    }
+
+    /** Count given to an n-gram never seen, relative to the total. */
+    private static final double FLOOR = 0.01;
+    /** Largest number of entries in a table. */
+    private static final int MAX_ENTRIES = 1 << 26;
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+    /** Length of my n-grams. */
+    private final int _order;
+    /** Log-probability of each n-gram, by index. */
+    private final float[] _logProbs;
+}
@@ -12,34 +12,149 @@ class Permutation {
      *  form "(cccc) (cc) ..." where the c's are characters in ALPHABET, which
      *  is interpreted as a permutation in cycle notation.  Characters in the
      *  alphabet that are not included in any cycle map to themselves.
-     *  Whitespace is ignored. */
+     *  Whitespace is ignored, so in the byte alphabet, or any alphabet
+     *  without a backslash, a character that is whitespace or a
+     *  parenthesis is written \xNN, where NN is its number in two
+     *  hexadecimal digits (see unescape). */
     Permutation(String cycles, Alphabet alphabet) {
+        this(cycles, null, alphabet);
+    }
+
+    /** Set this Permutation to the one taking each index I of ALPHABET to
+     *  MAPPING[I], which must hold each index of ALPHABET exactly once. */
+    Permutation(int[] mapping, Alphabet alphabet) {
+        this("", mapping, alphabet);
+    }
+
+    /** Set this Permutation to that given by MAPPING over ALPHABET if it
+     *  is not null, and otherwise to that given by CYCLES.  All my tables
+     *  are filled in here, so that a permutation is complete (and safe
+     *  to share between threads) once constructed. */
+    private Permutation(String cycles, int[] mapping, Alphabet alphabet) {
         _alphabet = alphabet;
-        _cycles = cycles;
-        _cycleslist = cyclesplit(cycles);
+        int n = alphabet.size();
+        if (n > MAX_SIZE) {
+            throw error("alphabet too large for a permutation");
+        }
+        _forward = new int[n];
+        _inverse = new int[n];
+        for (int i = 0; i < n; i++) {
+            store(i, i);
+        }
+        if (mapping == null) {
+            boolean[] seen = new boolean[n];
+            for (String cycle : cyclesplit(cycles)) {
+                addCycle(cycle, seen);
+            }
+            return;
+        }
+        if (mapping.length != n) {
+            throw error("permutation has the wrong size");
+        }
+        boolean[] seen = new boolean[n];
+        for (int to : mapping) {
+            if (to < 0 || to >= n || seen[to]) {
+                throw error("mapping is not a permutation");
+            }
+            seen[to] = true;
+        }
+        for (int i = 0; i < n; i++) {
+            store(i, mapping[i]);
+        }
     }
 
     /** Cyclesplit takes a string that contains "(" and ")"s and split them
-     *  into an array of strings of with parentheses.
+     *  into an array of strings without the parentheses.
      * @param S as a string
      * @return String[]
      */
     private String[] cyclesplit(String S) {
-        S = S.replaceAll(" ", "");
-        String[] a = S.split("\\)");
-        String[] result = new String[a.length];
-        for (int i = 0; i < a.length; i++) {
-            result[i] = a[i] + ")";
+        StringBuilder stripped = new StringBuilder(S.length());
+        for (int i = 0; i < S.length(); i++) {
+            char c = S.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                stripped.append(c);
+            }
+        }
+        String[] result = new String[stripped.length() / 2];
+        int count = 0;
+        int i = 0;
+        while (i < stripped.length()) {
+            if (stripped.charAt(i) != '(') {
+                throw error("malformed cycle in %s", S);
+            }
+            int close = stripped.indexOf(")", i);
+            if (close < 0) {
+                throw error("unterminated cycle in %s", S);
+            }
+            result[count] =
+                unescape(stripped.substring(i + 1, close), _alphabet);
+            count += 1;
+            i = close + 1;
+        }
+        String[] cyclesList = new String[count];
+        System.arraycopy(result, 0, cyclesList, 0, count);
+        return cyclesList;
+    }
+
+    /** Return S, a string of characters of ALPHABET, with each escape
+     *  \xNN, where NN is two hexadecimal digits, replaced by the
+     *  character numbered NN.  Any other backslash stands for itself.
+     *  Escapes are decoded only in the byte alphabet and in alphabets
+     *  without a backslash, so that configurations whose alphabets
+     *  include one read as they always have. */
+    static String unescape(String s, Alphabet alphabet) {
+        if (s.indexOf('\\') < 0
+            || !(alphabet instanceof ByteAlphabet)
+               && alphabet.contains('\\')) {
+            return s;
         }
-        return result;
+        StringBuilder result = new StringBuilder(s.length());
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 3 < s.length() && s.charAt(i + 1) == 'x') {
+                int hi = Character.digit(s.charAt(i + 2), HEX);
+                int lo = Character.digit(s.charAt(i + 3), HEX);
+                if (hi >= 0 && lo >= 0) {
+                    result.append((char) (hi * HEX + lo));
+                    i += 4;
+                    continue;
+                }
+            }
+            result.append(c);
+            i += 1;
+        }
+        return result.toString();
     }
 
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
-        _cycles += cycle;
+     *  c0c1...cm.  SEEN marks the indices already placed in a cycle. */
+    private void addCycle(String cycle, boolean[] seen) {
+        int len = cycle.length();
+        for (int i = 0; i < len; i++) {
+            char c = cycle.charAt(i);
+            if (!_alphabet.contains(c)) {
+                throw error("character %c not in alphabet", c);
+            }
+            int k = _alphabet.toInt(c);
+            if (seen[k]) {
+                throw error("character %c appears in more than one cycle", c);
+            }
+            seen[k] = true;
+        }
+        for (int i = 0; i < len; i++) {
+            int from = _alphabet.toInt(cycle.charAt(i));
+            int to = _alphabet.toInt(cycle.charAt((i + 1) % len));
+            store(from, to);
+        }
     }
 
+    /** Record in my tables that FROM maps to TO. */
+    private void store(int from, int to) {
+        _forward[from] = to;
+        _inverse[to] = from;
+    }
 
     /** Return the value of P modulo the size of this permutation. */
     final int wrap(int p) {
@@ -58,54 +173,48 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        int cIn = wrap(p);
-        char pIn = _alphabet.toChar(cIn);
-        char pOut = permute(pIn);
-        int cOut = _alphabet.toInt(pOut);
-        return cOut;
+        if (p < 0 || p >= _forward.length) {
+            p = wrap(p);
+        }
+        return _forward[p];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        int cIn = wrap(c);
-        char pIn = _alphabet.toChar(cIn);
-        char pOut = invert(pIn);
-        int cOut = _alphabet.toInt(pOut);
-        return cOut;
+        if (c < 0 || c >= _inverse.length) {
+            c = wrap(c);
+        }
+        return _inverse[c];
+    }
+
+    /** Return a table of the results of permute(I) for all indices I,
+     *  which must not be modified. */
+    int[] forwardTable() {
+        return _forward;
+    }
+
+    /** Return a table of the results of invert(I) for all indices I,
+     *  which must not be modified. */
+    int[] inverseTable() {
+        return _inverse;
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        String pstring = Character.toString(p);
-        char output = p;
-        for (String cycle : _cycleslist) {
-            if (cycle.contains(pstring)) {
-                if (cycle.indexOf(p) == cycle.length() - 2) {
-                    output = cycle.charAt(1);
-                } else {
-                    output = cycle.charAt(cycle.indexOf(p) + 1);
-                }
-            }
+        if (!_alphabet.contains(p)) {
+            return p;
         }
-        return output;
+        return _alphabet.toChar(permute(_alphabet.toInt(p)));
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        String cstring = Character.toString(c);
-        char output = c;
-        for (String cycle : _cycleslist) {
-            if (cycle.contains(cstring)) {
-                if (cycle.indexOf(c) == 1) {
-                    output = cycle.charAt(cycle.length() - 2);
-                } else {
-                    output = cycle.charAt(cycle.indexOf(c) - 1);
-                }
-            }
+        if (!_alphabet.contains(c)) {
+            return c;
         }
-        return output;
+        return _alphabet.toChar(invert(_alphabet.toInt(c)));
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -119,10 +228,14 @@ class Permutation {
         return true;
     }
 
+    /** Largest alphabet a permutation can be built over. */
+    private static final int MAX_SIZE = 1 << 16;
+    /** Radix of the digits in an escape. */
+    private static final int HEX = 16;
+
     /** Alphabet of this permutation. */
-    private Alphabet _alphabet;
-    /** Cycles of this permutation. */
-    private String _cycles;
-    /** Array of strings that contains individual cycle.  */
-    private String[] _cycleslist;
+    private final Alphabet _alphabet;
+    /** Forward and inverse mappings by index, which are also the tables
+     *  handed to the block and vector code. */
+    private final int[] _forward, _inverse;
 }
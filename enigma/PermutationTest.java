@@ -63,4 +63,88 @@ public class PermutationTest {
                 "BCDEFAHGIJKLMNOPQRSTUVWXYZ");
     }
 
+    @Test
+    public void checkWrappedIndices() {
+        perm = new Permutation("(ABCDEF) (GH) (Z)", UPPER);
+        assertEquals(1, perm.permute(26));
+        assertEquals(25, perm.permute(-1));
+        assertEquals(5, perm.invert(-26));
+    }
+
+    @Test
+    public void checkLargeAlphabet() {
+        char[] chars = new char[300];
+        for (int i = 0; i < chars.length; i += 1) {
+            chars[i] = (char) ('\u0100' + i);
+        }
+        Alphabet big = new ExtendedAlphabet(chars);
+        perm = new Permutation("(" + chars[0] + chars[299] + chars[150] + ")",
+                               big);
+        assertEquals(300, perm.size());
+        assertEquals(299, perm.permute(0));
+        assertEquals(150, perm.permute(299));
+        assertEquals(0, perm.permute(150));
+        assertEquals(150, perm.invert(0));
+        assertEquals(7, perm.permute(7));
+        assertEquals(chars[299], perm.permute(chars[0]));
+    }
+
+    @Test
+    public void checkTables() {
+        int[] mapping = new int[UPPER.size()];
+        for (int i = 0; i < mapping.length; i += 1) {
+            mapping[i] = (i * 7 + 3) % mapping.length;
+        }
+        Permutation[] perms = {
+            new Permutation(NAVALA.get("I"), UPPER),
+            new Permutation(mapping, UPPER)
+        };
+        for (Permutation p : perms) {
+            int[] forward = p.forwardTable();
+            int[] inverse = p.inverseTable();
+            for (int i = 0; i < UPPER.size(); i += 1) {
+                assertEquals(p.permute(i), forward[i]);
+                assertEquals(p.invert(i), inverse[i]);
+            }
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkRepeatedCharacter() {
+        perm = new Permutation("(ABC) (CD)", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkForeignCharacter() {
+        perm = new Permutation("(AB) (C1)", UPPER);
+    }
+
+    @Test
+    public void checkEscapes() {
+        Alphabet bytes = new ByteAlphabet();
+        assertEquals("A B", Permutation.unescape("A\\x20B", bytes));
+        assertEquals("()\u00ff",
+                     Permutation.unescape("\\x28\\x29\\xFf", bytes));
+        assertEquals("\\x2\\xg0\\",
+                     Permutation.unescape("\\x2\\xg0\\", bytes));
+        assertEquals("AB", Permutation.unescape("\\x41B", UPPER));
+        perm = new Permutation("(\\x28\\x20) (\\x29)(\\\\x00)", bytes);
+        assertEquals(' ', perm.permute('('));
+        assertEquals('(', perm.permute(' '));
+        assertEquals(')', perm.permute(')'));
+        assertEquals('\\', perm.permute('\0'));
+        assertEquals('\0', perm.permute('\\'));
+    }
+
+    @Test
+    public void checkBackslashAlphabet() {
+        Alphabet alpha = new ExtendedAlphabet("\\x41BC".toCharArray());
+        assertEquals("\\x41", Permutation.unescape("\\x41", alpha));
+        perm = new Permutation("(\\x41) (BC)", alpha);
+        assertEquals('x', perm.permute('\\'));
+        assertEquals('4', perm.permute('x'));
+        assertEquals('1', perm.permute('4'));
+        assertEquals('\\', perm.permute('1'));
+        assertEquals('C', perm.permute('B'));
+    }
 }
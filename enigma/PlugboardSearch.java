@@ -0,0 +1,429 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** Recovery of the plugboard of a message whose rotors and setting are
+ *  known, by hill-climbing on the n-gram score (see NgramTable) of the
+ *  decryption.  Each climb starts from a random plugboard and tries, for
+ *  every pair of letters, plugging them together (unplugging their
+ *  former partners) or, if they are already plugged together, unplugging
+ *  them, keeping any change that raises the score, until no change does.
+ *
+ *  With the rotors fixed, the letter decrypted at position I is
+ *  S(E_I(S(C_I))), for plugboard S, scrambler E_I and cipher letter C_I.
+ *  The scramblers are tabulated once.  A change to the plugboard that
+ *  touches a set of letters L alters only the positions whose C_I is in
+ *  L or whose E_I(S(C_I)) is in L; the positions are kept in lists by
+ *  both letters, so only those positions, and the n-grams covering them,
+ *  are decrypted and scored again.  Climbs from different starting
+ *  plugboards run in parallel on a ForkJoinPool, and the best is kept.
+ *  @author Wenhan Jin
+ */
+class PlugboardSearch {
+
+    /** Search for the plugboard of CIPHERTEXT on MACHINE, which must have
+     *  its rotors inserted and set as they were when CIPHERTEXT was
+     *  produced (its own plugboard is ignored, and its rotors are not
+     *  moved), scoring with TABLE.  Blanks in CIPHERTEXT are ignored and
+     *  letters are taken in upper case. */
+    PlugboardSearch(Machine machine, String ciphertext, NgramTable table) {
+        _alphabet = machine.alphabet();
+        _size = _alphabet.size();
+        if (table.alphabet().size() != _size) {
+            throw error("n-gram table has the wrong alphabet");
+        }
+        _table = table;
+        _order = table.order();
+        _cipher = _alphabet.indices(ciphertext);
+        _length = _cipher.length;
+        if (_length < _order) {
+            throw error("ciphertext shorter than an n-gram");
+        }
+        _scrambled = new int[_length * _size];
+        Machine m = machine.copy();
+        for (int i = 0; i < _length; i += 1) {
+            m.scramble(_scrambled, i * _size);
+        }
+        _cipherStart = new int[_size + 1];
+        for (int c : _cipher) {
+            _cipherStart[c + 1] += 1;
+        }
+        for (int x = 0; x < _size; x += 1) {
+            _cipherStart[x + 1] += _cipherStart[x];
+        }
+        int[] fill = Arrays.copyOf(_cipherStart, _size);
+        _byCipher = new int[_length];
+        for (int i = 0; i < _length; i += 1) {
+            _byCipher[fill[_cipher[i]]++] = i;
+        }
+    }
+
+    /** Run RESTARTS climbs on POOL, the Kth starting from a plugboard
+     *  chosen with random seed SEED + K, and return the best result. */
+    Result run(ForkJoinPool pool, int restarts, long seed) {
+        if (restarts < 1) {
+            throw error("need at least one climb");
+        }
+        long start = System.nanoTime();
+        Climber best = pool.invoke(new Climbs(seed, seed + restarts));
+        long nanos = System.nanoTime() - start;
+        return new Result(best.plugboard(), best.plaintext(), best.score(),
+                          restarts, nanos);
+    }
+
+    /** The outcome of a search. */
+    static class Result {
+
+        /** A result with plugboard PLUGBOARD (in cycle notation),
+         *  decrypting to PLAINTEXT with score SCORE, after RESTARTS climbs
+         *  taking NANOS nanoseconds. */
+        Result(String plugboard, String plaintext, double score,
+               int restarts, long nanos) {
+            _plugboard = plugboard;
+            _plaintext = plaintext;
+            _score = score;
+            _restarts = restarts;
+            _nanos = nanos;
+        }
+
+        /** Return the best plugboard found, in cycle notation. */
+        String plugboard() {
+            return _plugboard;
+        }
+
+        /** Return the decryption with plugboard(). */
+        String plaintext() {
+            return _plaintext;
+        }
+
+        /** Return the n-gram score of plaintext(). */
+        double score() {
+            return _score;
+        }
+
+        /** Return the number of climbs run. */
+        int restarts() {
+            return _restarts;
+        }
+
+        /** Return the time taken, in nanoseconds. */
+        long nanos() {
+            return _nanos;
+        }
+
+        /** Best plugboard. */
+        private final String _plugboard;
+        /** Its decryption. */
+        private final String _plaintext;
+        /** Its score. */
+        private final double _score;
+        /** Number of climbs. */
+        private final int _restarts;
+        /** Time taken. */
+        private final long _nanos;
+    }
+
+    /** A task running the climbs with seeds LO to HI - 1 and returning
+     *  the best. */
+    private class Climbs extends RecursiveTask<Climber> {
+
+        /** A task for seeds LO .. HI - 1. */
+        Climbs(long lo, long hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected Climber compute() {
+            if (_hi - _lo == 1) {
+                Climber climber = new Climber(new SplittableRandom(_lo));
+                climber.climb();
+                return climber;
+            }
+            long mid = _lo + (_hi - _lo) / 2;
+            Climbs left = new Climbs(_lo, mid);
+            left.fork();
+            Climber right = new Climbs(mid, _hi).compute();
+            Climber other = left.join();
+            return other.score() >= right.score() ? other : right;
+        }
+
+        /** Range of seeds. */
+        private final long _lo, _hi;
+    }
+
+    /** The state of one climb: a plugboard and the decryption under it,
+     *  with the positions listed by the letter each passes between the
+     *  plugboard and the scrambler on its way back. */
+    private class Climber {
+
+        /** A climber starting from a plugboard of random pairs chosen
+         *  with RANDOM. */
+        Climber(SplittableRandom random) {
+            for (int x = 0; x < _size; x += 1) {
+                _plug[x] = x;
+            }
+            int pairs = random.nextInt(Math.min(_size / 2, MAX_START_PAIRS)
+                                       + 1);
+            for (int p = 0; p < pairs; p += 1) {
+                int a = random.nextInt(_size), b = random.nextInt(_size);
+                if (a != b && _plug[a] == a && _plug[b] == b) {
+                    _plug[a] = b;
+                    _plug[b] = a;
+                }
+            }
+            Arrays.fill(_head, -1);
+            for (int i = 0; i < _length; i += 1) {
+                _inner[i] = _scrambled[i * _size + _plug[_cipher[i]]];
+                _plain[i] = _plug[_inner[i]];
+                link(i);
+            }
+            _score = _table.score(_plain);
+        }
+
+        /** Improve my plugboard until no single change raises the
+         *  score. */
+        void climb() {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int a = 0; a < _size; a += 1) {
+                    for (int b = a + 1; b < _size; b += 1) {
+                        if (tryChange(a, b)) {
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Plug A and B together (unplugging their partners) or, if they
+         *  are plugged together, unplug them; keep the change and return
+         *  true iff it raises my score. */
+        boolean tryChange(int a, int b) {
+            int a2 = _plug[a], b2 = _plug[b];
+            _gen += 1;
+            _touched = 0;
+            _windows = 0;
+            touch(a);
+            touch(b);
+            touch(a2);
+            touch(b2);
+            double before = windowScore();
+            if (a2 == b) {
+                _plug[a] = a;
+                _plug[b] = b;
+            } else {
+                _plug[a2] = a2;
+                _plug[b2] = b2;
+                _plug[a] = b;
+                _plug[b] = a;
+            }
+            for (int t = 0; t < _touched; t += 1) {
+                int i = _touchedPos[t];
+                _savedInner[t] = _inner[i];
+                _inner[i] = _scrambled[i * _size + _plug[_cipher[i]]];
+                _plain[i] = _plug[_inner[i]];
+            }
+            double after = windowScore();
+            if (after > before + EPSILON) {
+                _score += after - before;
+                for (int t = 0; t < _touched; t += 1) {
+                    int i = _touchedPos[t];
+                    if (_inner[i] != _savedInner[t]) {
+                        int x = _inner[i];
+                        _inner[i] = _savedInner[t];
+                        unlink(i);
+                        _inner[i] = x;
+                        link(i);
+                    }
+                }
+                return true;
+            }
+            _plug[a] = a2;
+            _plug[b] = b2;
+            _plug[a2] = a;
+            _plug[b2] = b;
+            for (int t = 0; t < _touched; t += 1) {
+                int i = _touchedPos[t];
+                _inner[i] = _savedInner[t];
+                _plain[i] = _plug[_inner[i]];
+            }
+            return false;
+        }
+
+        /** Mark the positions whose cipher letter or inner letter is X as
+         *  touched by the current change, along with the n-grams that
+         *  cover them. */
+        private void touch(int x) {
+            for (int k = _cipherStart[x]; k < _cipherStart[x + 1]; k += 1) {
+                touchPosition(_byCipher[k]);
+            }
+            for (int i = _head[x]; i >= 0; i = _next[i]) {
+                touchPosition(i);
+            }
+        }
+
+        /** Mark position I, and the n-grams covering it, as touched. */
+        private void touchPosition(int i) {
+            if (_posStamp[i] == _gen) {
+                return;
+            }
+            _posStamp[i] = _gen;
+            _touchedPos[_touched] = i;
+            _touched += 1;
+            int last = Math.min(i, _length - _order);
+            for (int s = Math.max(0, i - _order + 1); s <= last; s += 1) {
+                if (_winStamp[s] != _gen) {
+                    _winStamp[s] = _gen;
+                    _windowStart[_windows] = s;
+                    _windows += 1;
+                }
+            }
+        }
+
+        /** Return the total score of the touched n-grams. */
+        private double windowScore() {
+            double sum = 0;
+            for (int w = 0; w < _windows; w += 1) {
+                sum += _table.logProb(_table.index(_plain, _windowStart[w]));
+            }
+            return sum;
+        }
+
+        /** Add position I to the list of its inner letter. */
+        private void link(int i) {
+            int x = _inner[i];
+            _prev[i] = -1;
+            _next[i] = _head[x];
+            if (_head[x] >= 0) {
+                _prev[_head[x]] = i;
+            }
+            _head[x] = i;
+        }
+
+        /** Remove position I from the list of its inner letter. */
+        private void unlink(int i) {
+            if (_prev[i] >= 0) {
+                _next[_prev[i]] = _next[i];
+            } else {
+                _head[_inner[i]] = _next[i];
+            }
+            if (_next[i] >= 0) {
+                _prev[_next[i]] = _prev[i];
+            }
+        }
+
+        /** Return my score. */
+        double score() {
+            return _score;
+        }
+
+        /** Return my plugboard, in cycle notation. */
+        String plugboard() {
+            StringBuilder result = new StringBuilder();
+            for (int x = 0; x < _size; x += 1) {
+                if (_plug[x] > x) {
+                    if (result.length() > 0) {
+                        result.append(' ');
+                    }
+                    result.append('(').append(_alphabet.toChar(x))
+                        .append(_alphabet.toChar(_plug[x])).append(')');
+                }
+            }
+            return result.toString();
+        }
+
+        /** Return my decryption. */
+        String plaintext() {
+            char[] result = new char[_length];
+            for (int i = 0; i < _length; i += 1) {
+                result[i] = _alphabet.toChar(_plain[i]);
+            }
+            return new String(result);
+        }
+
+        /** Plugboard partner of each letter (itself if unplugged). */
+        private final int[] _plug = new int[_size];
+        /** E_I(S(C_I)) at each position I. */
+        private final int[] _inner = new int[_length];
+        /** The decrypted letter at each position. */
+        private final int[] _plain = new int[_length];
+        /** First position in the list of each inner letter, or -1. */
+        private final int[] _head = new int[_size];
+        /** Next and previous position in the same list, or -1. */
+        private final int[] _next = new int[_length], _prev = new int[_length];
+        /** Generation at which each position was last touched. */
+        private final int[] _posStamp = new int[_length];
+        /** Generation at which each n-gram start was last touched. */
+        private final int[] _winStamp = new int[_length];
+        /** Positions touched by the current change. */
+        private final int[] _touchedPos = new int[_length];
+        /** Their inner letters before the change. */
+        private final int[] _savedInner = new int[_length];
+        /** Starts of the n-grams touched by the current change. */
+        private final int[] _windowStart = new int[_length];
+        /** Numbers of touched positions and n-grams. */
+        private int _touched, _windows;
+        /** The current generation, distinguishing changes. */
+        private int _gen;
+        /** My current score. */
+        private double _score;
+    }
+
+    /** Find the plugboard of the ciphertext given by ARGS: ARGS[0] names a
+     *  configuration file, ARGS[1] is a settings line giving the rotors
+     *  and setting, ARGS[2] names an n-gram file (see NgramTable.read),
+     *  ARGS[3] is the ciphertext and ARGS[4], if present, the number of
+     *  climbs (20 by default).  Prints the best plugboard, the decryption
+     *  and its score.  Exits with code 1 on errors. */
+    public static void main(String... args) {
+        Main.tool(() -> {
+            if (args.length < 4 || args.length > 5) {
+                throw error("usage: CONFIG SETTINGS NGRAMS CIPHERTEXT "
+                            + "[RESTARTS]");
+            }
+            int restarts = Main.intArg(args, 4, 20, "count");
+            Machine m = Main.loadConfig(args[0], args[1]);
+            NgramTable table = NgramTable.read(args[2], m.alphabet());
+            PlugboardSearch search = new PlugboardSearch(m, args[3], table);
+            Result result = search.run(ForkJoinPool.commonPool(), restarts,
+                                       System.nanoTime());
+            System.out.println(result.plugboard());
+            System.out.println(result.plaintext());
+            System.out.printf("score %.2f after %d climbs in %.3f s%n",
+                              result.score(), result.restarts(),
+                              result.nanos() / 1e9);
+        });
+    }
+
+    /** Largest number of pairs in a starting plugboard. */
+    private static final int MAX_START_PAIRS = 10;
+    /** Smallest rise in score counted as an improvement. */
+    private static final double EPSILON = 1e-9;
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+    /** Size of _alphabet. */
+    private final int _size;
+    /** The n-gram scores. */
+    private final NgramTable _table;
+    /** Length of the n-grams scored. */
+    private final int _order;
+    /** The ciphertext, as indices in _alphabet. */
+    private final int[] _cipher;
+    /** Its length. */
+    private final int _length;
+    /** E_I(C) at I * _size + C. */
+    private final int[] _scrambled;
+    /** The positions with cipher letter X are _byCipher[_cipherStart[X]]
+     *  to _byCipher[_cipherStart[X + 1] - 1]. */
+    private final int[] _cipherStart;
+    /** Positions, grouped by cipher letter. */
+    private final int[] _byCipher;
+}
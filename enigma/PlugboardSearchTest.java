@@ -0,0 +1,107 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.MachineTest.navalMachine;
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the PlugboardSearch and NgramTable
+ *  classes.
+ *  @author Wenhan Jin
+ */
+public class PlugboardSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /** A passage of English. */
+    private static final String TEXT =
+        "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA OF ROSEWOOD MADE OF "
+        + "SLIDING FOLDING ROSEWOOD NEATLY PUT IT ALL TOGETHER IN ITS CASE "
+        + "IT LAY COMPACTLY FOLDED INTO NEARLY NOTHING BUT HE OPENED OUT "
+        + "THE HINGES PUSHED AND PULLED THE JOINTS AND HINGES TILL IT "
+        + "LOOKED ALL SQUARES AND OBLONGS LIKE A COMPLICATED FIGURE IN THE "
+        + "SECOND BOOK OF EUCLID THIS HE PERCHED UPON A TRIPOD CROUCHED "
+        + "BENEATH ITS DUSKY COVER STRETCHED HIS HAND ENFORCING SILENCE "
+        + "SAID BE MOTIONLESS I BEG YOU MYSTIC AWFUL WAS THE PROCESS "
+        + "ALL THE FAMILY IN ORDER SAT BEFORE HIM FOR THEIR PICTURES EACH "
+        + "IN TURN AS HE WAS TAKEN VOLUNTEERED HIS OWN SUGGESTIONS HIS "
+        + "INGENIOUS SUGGESTIONS";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkRecoversPlugboard() {
+        String plugs = "(AQ) (EP) (TZ) (MX) (BK) (LW)";
+        Machine m = navalMachine("CRIB", "B", "Beta", "I", "II", "III");
+        m.setPlugboard(new Permutation(plugs, UPPER));
+        String cipher = m.convert(TEXT);
+        NgramTable table = NgramTable.count(UPPER, 3, TEXT);
+        Machine key = navalMachine("CRIB", "B", "Beta", "I", "II", "III");
+        PlugboardSearch search = new PlugboardSearch(key, cipher, table);
+        PlugboardSearch.Result result = search.run(new ForkJoinPool(4), 8, 1);
+        assertEquals(msg("plugs", "wrong decryption"),
+                     TEXT.replace(" ", ""), result.plaintext());
+        assertEquals(msg("plugs", "wrong plugboard"),
+                     "(AQ) (BK) (EP) (LW) (MX) (TZ)", result.plugboard());
+        assertEquals(msg("plugs", "rotors moved"), UPPER.toInt('B'),
+                     key.setting(4));
+    }
+
+    @Test
+    public void checkIncrementalScore() {
+        Machine m = navalMachine("AXLE", "B", "Gamma", "V", "IV", "II");
+        m.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", UPPER));
+        String cipher = m.convert(TEXT);
+        NgramTable table = NgramTable.count(UPPER, 4, TEXT);
+        Machine key = navalMachine("AXLE", "B", "Gamma", "V", "IV", "II");
+        PlugboardSearch.Result result =
+            new PlugboardSearch(key, cipher, table)
+            .run(ForkJoinPool.commonPool(), 3, 42);
+        int[] plain = new int[result.plaintext().length()];
+        for (int i = 0; i < plain.length; i += 1) {
+            plain[i] = UPPER.toInt(result.plaintext().charAt(i));
+        }
+        assertEquals(table.score(plain), result.score(), 1e-3);
+    }
+
+    @Test
+    public void checkReadTable() throws IOException {
+        File file = File.createTempFile("ngrams", ".txt");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("TH 30");
+            out.println("");
+            out.println("he 10");
+        }
+        NgramTable table = NgramTable.read(file.getPath(), UPPER);
+        assertEquals(2, table.order());
+        int th = table.index(new int[] {UPPER.toInt('T'), UPPER.toInt('H')},
+                             0);
+        int he = table.index(new int[] {UPPER.toInt('H'), UPPER.toInt('E')},
+                             0);
+        assertEquals(Math.log10(0.75), table.logProb(th), 1e-6);
+        assertEquals(Math.log10(0.25), table.logProb(he), 1e-6);
+        assertTrue(table.logProb(0) < table.logProb(he));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkMixedLengths() throws IOException {
+        File file = File.createTempFile("ngrams", ".txt");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("TH 30");
+            out.println("THE 10");
+        }
+        NgramTable.read(file.getPath(), UPPER);
+    }
+}
@@ -19,18 +19,8 @@ class Reflector extends FixedRotor {
     }
 
     @Override
-    int convertBackward(int e) {
+    int convertBackward(int e, int posn) {
         throw error("Reflector does not convert backward");
     }
 
-
-    @Override
-    void set(int posn) {
-        if (posn != 0) {
-            throw error("reflector has only one position");
-        } else {
-            super.set(0);
-        }
-    }
-
 }
@@ -2,7 +2,11 @@ package enigma;
 
 import static enigma.EnigmaException.*;
 
-/** Superclass that represents a rotor in the enigma machine.
+/** Superclass that represents a rotor in the enigma machine.  A rotor is
+ *  only its wiring and notches, which never change; its position is
+ *  passed to each method that depends on it, and is kept by the Machine
+ *  using it.  One rotor may thus be shared by any number of machines on
+ *  any number of threads.
  *  @author Wenhan Jin
  */
 class Rotor {
@@ -11,6 +15,26 @@ class Rotor {
     Rotor(String name, Permutation perm) {
         _name = name;
         _permutation = perm;
+        _size = perm.size();
+        _forwardTable = _size > TABLE_LIMIT ? null : table(perm, true);
+        _backwardTable = _size > TABLE_LIMIT ? null : table(perm, false);
+    }
+
+    /** Return the SIZE * SIZE table of the results of passing each index
+     *  through PERM (its inverse unless FORWARD) at each position, the
+     *  result for index P at position S being at S * SIZE + P. */
+    private static byte[] table(Permutation perm, boolean forward) {
+        int n = perm.size();
+        byte[] result = new byte[n * n];
+        for (int s = 0; s < n; s += 1) {
+            int row = s * n;
+            for (int p = 0; p < n; p += 1) {
+                int c = perm.wrap(p + s);
+                int e = forward ? perm.permute(c) : perm.invert(c);
+                result[row + p] = (byte) perm.wrap(e - s);
+            }
+        }
+        return result;
     }
 
     /** Return my name. */
@@ -43,45 +67,48 @@ class Rotor {
         return false;
     }
 
-    /** Return my current setting. */
-    int setting() {
-        return setlocation;
-    }
-
-    /** Set setting() to POSN.  */
-    void set(int posn) {
-        setlocation = posn;
-    }
-
-    /** Set setting() to character CPOSN. */
-    void set(char cposn) {
-        setlocation = _permutation.alphabet().toInt(cposn);
-    }
-
     /** Return the conversion of P (an integer in the range 0..size()-1)
-     *  according to my permutation. */
-    int convertForward(int p) {
-        int cIn = _permutation.wrap(p + setlocation);
-        int cOut = _permutation.permute(cIn);
-        return _permutation.wrap(cOut - setlocation);
+     *  according to my permutation when I am at position POSN. */
+    int convertForward(int p, int posn) {
+        if (_forwardTable != null) {
+            return _forwardTable[posn * _size + p] & BYTE_MASK;
+        }
+        int n = _size;
+        int cIn = p + posn;
+        if (cIn >= n) {
+            cIn -= n;
+        }
+        int cOut = _permutation.permute(cIn) - posn;
+        return cOut < 0 ? cOut + n : cOut;
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
-     *  according to the inverse of my permutation. */
-    int convertBackward(int e) {
-        int cIn = _permutation.wrap(e + setlocation);
-        int cOut = _permutation.invert(cIn);
-        return _permutation.wrap(cOut - setlocation);
+     *  according to the inverse of my permutation when I am at position
+     *  POSN. */
+    int convertBackward(int e, int posn) {
+        if (_backwardTable != null) {
+            return _backwardTable[posn * _size + e] & BYTE_MASK;
+        }
+        int n = _size;
+        int cIn = e + posn;
+        if (cIn >= n) {
+            cIn -= n;
+        }
+        int cOut = _permutation.invert(cIn) - posn;
+        return cOut < 0 ? cOut + n : cOut;
     }
 
-    /** Returns true iff I am positioned to allow the rotor to my left
-     *  to advance. */
-    boolean atNotch() {
+    /** Returns true iff I would allow the rotor to my left to advance
+     *  at setting POSN.  By default, I have no notches. */
+    boolean atNotch(int posn) {
         return false;
     }
 
-    /** Advance me one position, if possible. By default, does nothing. */
-    void advance() {
+    /** Return the number of advances needed from setting POSN before
+     *  atNotch holds, or -1 if it never will.  By default, I have no
+     *  notches. */
+    int toNotch(int posn) {
+        return -1;
     }
 
     @Override
@@ -89,17 +116,26 @@ class Rotor {
         return "Rotor " + _name;
     }
 
+    /** Largest alphabet for which setting-indexed tables are built. */
+    private static final int TABLE_LIMIT = 1 << 8;
+
+    /** Mask recovering an unsigned index from a table entry. */
+    private static final int BYTE_MASK = 0xFF;
+
     /** My name. */
     private final String _name;
 
     /** The permutation implemented by this rotor in its 0 position. */
-    private Permutation _permutation;
-
-    /** NOTCH of this rotor. */
-    private String notch;
+    private final Permutation _permutation;
 
-    /** Setting of this rotor. */
-    private int setlocation;
+    /** Size of my alphabet. */
+    private final int _size;
 
+    /** Result of convertForward(P) at setting S, stored at index
+     *  S * size() + P; null when my alphabet exceeds TABLE_LIMIT. */
+    private final byte[] _forwardTable;
 
+    /** Result of convertBackward(E) at setting S, stored at index
+     *  S * size() + E; null when my alphabet exceeds TABLE_LIMIT. */
+    private final byte[] _backwardTable;
 }
@@ -0,0 +1,68 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The rotor orders a machine can be set up with: a reflector in the
+ *  first slot, distinct non-moving rotors in the slots after it, and
+ *  distinct moving rotors in the last numPawls() slots (the arrangement
+ *  Main accepts on a settings line, with the moving rotors rightmost).
+ *  @author Wenhan Jin
+ */
+final class RotorOrders {
+
+    /** Not instantiable. */
+    private RotorOrders() {
+    }
+
+    /** Return the names of the rotors in every rotor order of CONFIG,
+     *  one array (by slot) per order. */
+    static List<String[]> of(Machine config) {
+        ArrayList<String> reflectors = new ArrayList<>();
+        ArrayList<String> fixed = new ArrayList<>();
+        ArrayList<String> moving = new ArrayList<>();
+        for (Rotor r : config.allRotors()) {
+            if (r.reflecting()) {
+                reflectors.add(r.name());
+            } else if (r.rotates()) {
+                moving.add(r.name());
+            } else {
+                fixed.add(r.name());
+            }
+        }
+        int slots = config.numRotors();
+        int pawls = config.numPawls();
+        ArrayList<String[]> orders = new ArrayList<>();
+        for (String reflector : reflectors) {
+            String[] order = new String[slots];
+            order[0] = reflector;
+            arrange(order, 1, slots - pawls, fixed, new boolean[fixed.size()],
+                    moving, new boolean[moving.size()], orders);
+        }
+        return orders;
+    }
+
+    /** Fill ORDER from slot I on with unused rotors (as marked in USEDF
+     *  and USEDM) from FIXED before slot FIRSTMOVING and from MOVING
+     *  after it, adding each complete order to ORDERS. */
+    private static void arrange(String[] order, int i, int firstMoving,
+                                List<String> fixed, boolean[] usedF,
+                                List<String> moving, boolean[] usedM,
+                                List<String[]> orders) {
+        if (i == order.length) {
+            orders.add(order.clone());
+            return;
+        }
+        List<String> choices = i < firstMoving ? fixed : moving;
+        boolean[] used = i < firstMoving ? usedF : usedM;
+        for (int k = 0; k < choices.size(); k += 1) {
+            if (!used[k]) {
+                used[k] = true;
+                order[i] = choices.get(k);
+                arrange(order, i + 1, firstMoving, fixed, usedF, moving,
+                        usedM, orders);
+                used[k] = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The outcome of a search for the key (rotors and starting setting) of
+ *  a message, such as CribSearch or IocSearch: the candidate keys kept,
+ *  in the order the search ranks them, the numbers of candidates found
+ *  and keys tested, and the time taken.  A search's tasks each build one
+ *  as they go, and these are merged as the tasks finish.
+ *  @author Wenhan Jin
+ */
+class SearchResult {
+
+    /** An empty result keeping at most LIMIT candidates. */
+    SearchResult(int limit) {
+        _limit = limit;
+    }
+
+    /** A candidate key. */
+    static class Candidate {
+
+        /** A candidate with rotors named ROTORS at SETTING and plugboard
+         *  PLUGBOARD (in cycle notation, "" for none), scoring SCORE (0
+         *  for searches that do not score keys). */
+        Candidate(String[] rotors, String setting, String plugboard,
+                  double score) {
+            _rotors = rotors;
+            _setting = setting;
+            _plugboard = plugboard;
+            _score = score;
+        }
+
+        /** Return the names of my rotors, by slot. */
+        String[] rotors() {
+            return _rotors;
+        }
+
+        /** Return my starting setting. */
+        String setting() {
+            return _setting;
+        }
+
+        /** Return my plugboard pairs, in cycle notation. */
+        String plugboard() {
+            return _plugboard;
+        }
+
+        /** Return my score. */
+        double score() {
+            return _score;
+        }
+
+        /** Return me as a settings line. */
+        @Override
+        public String toString() {
+            String line = "* " + String.join(" ", _rotors) + " " + _setting;
+            return _plugboard.isEmpty() ? line : line + " " + _plugboard;
+        }
+
+        /** Rotor names. */
+        private final String[] _rotors;
+        /** Starting setting. */
+        private final String _setting;
+        /** Plugboard pairs. */
+        private final String _plugboard;
+        /** Score. */
+        private final double _score;
+    }
+
+    /** Return the candidates kept. */
+    List<Candidate> candidates() {
+        return _candidates;
+    }
+
+    /** Return the number of candidates found, including any not kept. */
+    long found() {
+        return _found;
+    }
+
+    /** Return the number of keys tested. */
+    long tested() {
+        return _tested;
+    }
+
+    /** Return the time taken, in nanoseconds. */
+    long nanos() {
+        return _nanos;
+    }
+
+    /** Return the number of keys tested per second. */
+    double keysPerSecond() {
+        return _nanos == 0 ? 0 : _tested * 1e9 / _nanos;
+    }
+
+    /** Return a line reporting the keys tested and the rate at which
+     *  they were tested. */
+    String summary() {
+        return String.format("%d keys tested in %.3f s (%.0f keys/s)",
+                             _tested, _nanos / 1e9, keysPerSecond());
+    }
+
+    /** Record that CANDIDATE was found, keeping it if there is room. */
+    void add(Candidate candidate) {
+        _found += 1;
+        if (_candidates.size() < _limit) {
+            _candidates.add(candidate);
+        }
+    }
+
+    /** Record that N more keys were tested. */
+    void tested(long n) {
+        _tested += n;
+    }
+
+    /** Record that the search took NANOS nanoseconds. */
+    void nanos(long nanos) {
+        _nanos = nanos;
+    }
+
+    /** Add the results of OTHER to mine. */
+    void merge(SearchResult other) {
+        for (Candidate c : other._candidates) {
+            if (_candidates.size() < _limit) {
+                _candidates.add(c);
+            }
+        }
+        _found += other._found;
+        _tested += other._tested;
+    }
+
+    /** Most candidates kept. */
+    private final int _limit;
+    /** Candidates kept. */
+    private final ArrayList<Candidate> _candidates = new ArrayList<>();
+    /** Candidates found. */
+    private long _found;
+    /** Keys tested. */
+    private long _tested;
+    /** Time taken. */
+    private long _nanos;
+}
@@ -0,0 +1,175 @@
+package enigma;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static enigma.EnigmaException.*;
+
+/** A long-running Enigma service, which loads a configuration once and
+ *  then converts input for any number of clients, so that small jobs do
+ *  not each pay for starting a JVM and reading the configuration.  It
+ *  listens on a Unix-domain socket or on a port of the loopback
+ *  interface.  Each connection is a session that behaves like a run of
+ *  Main with the configuration: the client sends the lines of an input
+ *  file (settings lines and messages), shuts down its side of the
+ *  connection for output, and reads back the output Main would have
+ *  written.  The output is sent line by line as it is produced (with
+ *  --parallel, a stretch between settings lines at a time), so the
+ *  client may read it while still sending.  If the input has an error,
+ *  the output ends with the line "Error: MESSAGE".  Sessions run
+ *  concurrently, each on its own thread with its own copy of the
+ *  machine.
+ *  @author Wenhan Jin
+ */
+final class Server implements Closeable {
+
+    /** A server for the machines described by CONFIG, listening on
+     *  ADDRESS, which is either a port number on the loopback interface
+     *  (0 for any free port) or the path of a Unix-domain socket to
+     *  create.  Long messages are converted on POOL unless it is
+     *  null. */
+    Server(Machine config, String address, ForkJoinPool pool) {
+        _config = config;
+        _pool = pool;
+        try {
+            if (address.matches("\\d+")) {
+                _listener = ServerSocketChannel.open();
+                _listener.bind(new InetSocketAddress(
+                    InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(address)));
+                _socketFile = null;
+            } else {
+                _socketFile = Path.of(address);
+                _listener =
+                    ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                _listener.bind(UnixDomainSocketAddress.of(_socketFile));
+            }
+        } catch (IOException | IllegalArgumentException excp) {
+            throw error("could not listen on %s: %s", address,
+                        excp.getMessage());
+        }
+        _sessions = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "enigma-session-"
+                                  + _sessionCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Return the address on which I listen. */
+    SocketAddress address() {
+        try {
+            return _listener.getLocalAddress();
+        } catch (IOException excp) {
+            throw error("server closed");
+        }
+    }
+
+    /** Accept connections and start a session for each until I am
+     *  closed. */
+    void serve() {
+        while (true) {
+            SocketChannel client;
+            try {
+                client = _listener.accept();
+            } catch (ClosedChannelException excp) {
+                return;
+            } catch (IOException excp) {
+                throw error("could not accept connection: %s",
+                            excp.getMessage());
+            }
+            _sessions.execute(() -> session(client));
+        }
+    }
+
+    /** Stop listening, removing my socket file if I have one.  Sessions
+     *  already started run to completion. */
+    @Override
+    public void close() {
+        try {
+            _listener.close();
+            _sessions.shutdown();
+            if (_socketFile != null) {
+                Files.deleteIfExists(_socketFile);
+            }
+        } catch (IOException excp) {
+            throw error("could not close server: %s", excp.getMessage());
+        }
+    }
+
+    /** Convert the input sent on CLIENT, sending back the output, and
+     *  close it. */
+    private void session(SocketChannel client) {
+        try (client) {
+            OutputStream out = Channels.newOutputStream(client);
+            try {
+                Main.session(_config, Channels.newInputStream(client), out,
+                             _pool);
+            } catch (EnigmaException excp) {
+                out.write(String.format("Error: %s%n", excp.getMessage())
+                          .getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException excp) {
+            /* The client has gone; there is no one left to tell. */
+        }
+    }
+
+    /** Serve the configuration given by ARGS, after any leading options:
+     *  ARGS[0] names a configuration file (plain or compiled) and ARGS[1]
+     *  is the address to listen on, as for the constructor.  The option
+     *  --parallel converts long messages on all available processors, as
+     *  for Main.  Runs until killed; exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            ForkJoinPool pool = null;
+            if (args.length > 0 && args[0].equals("--parallel")) {
+                pool = ForkJoinPool.commonPool();
+                args = Arrays.copyOfRange(args, 1, args.length);
+            }
+            if (args.length != 2) {
+                throw error("usage: [--parallel] CONFIG ADDRESS");
+            }
+            Server server = new Server(Main.loadConfig(args[0]), args[1],
+                                       pool);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            System.out.printf("listening on %s%n", server.address());
+            System.out.flush();
+            server.serve();
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** The machine each session copies. */
+    private final Machine _config;
+    /** Pool for long messages, or null. */
+    private final ForkJoinPool _pool;
+    /** The socket on which I accept connections. */
+    private final ServerSocketChannel _listener;
+    /** My Unix-domain socket file, or null. */
+    private final Path _socketFile;
+    /** The threads running sessions. */
+    private final ExecutorService _sessions;
+    /** Number of session threads started. */
+    private final AtomicInteger _sessionCount = new AtomicInteger();
+}
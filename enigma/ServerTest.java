@@ -0,0 +1,189 @@
+package enigma;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static enigma.MachineTest.navalMachine;
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Server class.
+ *  @author Wenhan Jin
+ */
+public class ServerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /** Input of the trivial test. */
+    private static final String TRIVIAL =
+        "* B Beta I II III AAAA\nHello world\n"
+        + "* B Beta I II III AAAA\nILBDA AMTAZ\n";
+
+    /** Return the naval configuration, with no rotors inserted. */
+    private Machine config() {
+        return navalMachine("AAAA", "B", "Beta", "I", "II", "III")
+            .copyConfig();
+    }
+
+    /** Start a server for config() on ADDRESS, serving on a thread of
+     *  its own. */
+    private Server start(String address) {
+        _server = new Server(config(), address, null);
+        Thread serving = new Thread(_server::serve);
+        serving.setDaemon(true);
+        serving.start();
+        return _server;
+    }
+
+    /** Return the output Main would give for INPUT. */
+    private String expected(String input) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Main.session(config(), new ByteArrayInputStream(
+                         input.getBytes(StandardCharsets.UTF_8)),
+                     out, null);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Write INPUT to CLIENT. */
+    private static void send(SocketChannel client, String input)
+        throws IOException {
+        ByteBuffer data =
+            ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+        while (data.hasRemaining()) {
+            client.write(data);
+        }
+    }
+
+    /** Send INPUT to the server at ADDRESS and return its reply. */
+    private static String request(SocketAddress address, String input)
+        throws IOException {
+        try (SocketChannel client = SocketChannel.open(address)) {
+            send(client, input);
+            client.shutdownOutput();
+            InputStream in = Channels.newInputStream(client);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Stop the server. */
+    @After
+    public void stop() {
+        if (_server != null) {
+            _server.close();
+        }
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkSession() {
+        assertEquals("ILBDA AMTAZ\nHELLO WORLD\n", expected(TRIVIAL));
+    }
+
+    @Test
+    public void checkLoopback() throws IOException {
+        Server server = start("0");
+        assertEquals(expected(TRIVIAL), request(server.address(), TRIVIAL));
+        assertEquals(expected(TRIVIAL), request(server.address(), TRIVIAL));
+    }
+
+    @Test
+    public void checkUnixDomain() throws IOException {
+        Path dir = Files.createTempDirectory("enigma");
+        Path socket = dir.resolve("enigma.sock");
+        try {
+            Server server = start(socket.toString());
+            assertEquals(expected(TRIVIAL),
+                         request(server.address(), TRIVIAL));
+            server.close();
+            assertFalse(msg("unix", "socket file left behind"),
+                        Files.exists(socket));
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void checkStreaming() throws IOException {
+        Server server = start("0");
+        try (SocketChannel client = SocketChannel.open(server.address())) {
+            send(client, "* B Beta I II III AAAA\nHello world\n");
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                Channels.newInputStream(client), StandardCharsets.UTF_8));
+            assertEquals("ILBDA AMTAZ", in.readLine());
+            send(client, "* B Beta I II III AAAA\nILBDA AMTAZ\n");
+            client.shutdownOutput();
+            assertEquals("HELLO WORLD", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    public void checkConcurrentSessions() throws Exception {
+        Server server = start("0");
+        String[] settings = {"AAAA", "QXZE", "BFLM", "ZZZZ"};
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<String>> replies = new ArrayList<>();
+            ArrayList<String> inputs = new ArrayList<>();
+            for (int i = 0; i < 16; i += 1) {
+                StringBuilder input = new StringBuilder();
+                input.append("* B Beta I II III ")
+                    .append(settings[i % settings.length]).append('\n');
+                for (int j = 0; j <= i; j += 1) {
+                    input.append("THE QUICK BROWN FOX JUMPS\n");
+                }
+                inputs.add(input.toString());
+                replies.add(clients.submit(
+                    () -> request(server.address(), input.toString())));
+            }
+            for (int i = 0; i < inputs.size(); i += 1) {
+                assertEquals(msg("concurrent", "session %d", i),
+                             expected(inputs.get(i)), replies.get(i).get());
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void checkErrors() throws IOException {
+        Server server = start("0");
+        assertEquals("Error: No configuration\n",
+                     request(server.address(), "HELLO\n"));
+        String reply = request(server.address(),
+                               "* B Beta I II III AAAA\nHELLO\n"
+                               + "* B Beta I II Gamma AAAA\nHELLO\n");
+        assertTrue(reply, reply.startsWith(expected("* B Beta I II III AAAA\n"
+                                                    + "HELLO\n")));
+        assertTrue(reply, reply.endsWith("\nError: "
+                                         + "Wrong number of moving rotors\n"));
+        assertEquals(expected(TRIVIAL), request(server.address(), TRIVIAL));
+    }
+
+    /** The server under test, if any. */
+    private Server _server;
+}
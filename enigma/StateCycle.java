@@ -0,0 +1,170 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** The cycle of rotor positions a machine runs through as keys are
+ *  pressed.  The state of a machine (the positions of its moving rotors)
+ *  is packed into one long, and Brent's cycle-finding algorithm finds the
+ *  length of the cycle the states fall into (the period) and the number
+ *  of keypresses before the cycle is reached (the pre-period), using a
+ *  constant amount of memory however large the space of states.  Because
+ *  of double stepping and rotors with several notches, the period is in
+ *  general smaller than the number of states, and a setting may lie off
+ *  the cycle altogether.
+ *  @author Wenhan Jin
+ */
+class StateCycle {
+
+    /** An analysis of the states of M, which must have its rotors
+     *  inserted, starting from its current setting.  M itself is not
+     *  moved. */
+    StateCycle(Machine m) {
+        _machine = m.copy();
+        Rotor[] rotors = _machine.rotorsl();
+        if (rotors == null) {
+            throw error("no rotors inserted");
+        }
+        _size = m.alphabet().size();
+        int moving = 0;
+        for (Rotor r : rotors) {
+            if (r.rotates()) {
+                moving += 1;
+            }
+        }
+        long states = 1;
+        for (int i = 0; i < moving; i += 1) {
+            if (states > Long.MAX_VALUE / _size) {
+                throw error("too many rotor positions to pack in a long");
+            }
+            states *= _size;
+        }
+        _states = states;
+        _start = state(_machine);
+    }
+
+    /** Return the number of possible states: the alphabet size raised to
+     *  the number of moving rotors. */
+    long states() {
+        return _states;
+    }
+
+    /** Return the starting state, packed as for state(Machine). */
+    long start() {
+        return _start;
+    }
+
+    /** Return the state of M, a copy of my machine: the positions of its
+     *  moving rotors read as a number in base alphabet size, leftmost
+     *  rotor first. */
+    private long state(Machine m) {
+        Rotor[] rotors = m.rotorsl();
+        long state = 0;
+        for (int i = 0; i < rotors.length; i += 1) {
+            if (rotors[i].rotates()) {
+                state = state * _size + m.position(i);
+            }
+        }
+        return state;
+    }
+
+    /** Return a copy of my machine in the starting state. */
+    private Machine fresh() {
+        return _machine.copy();
+    }
+
+    /** Find the period and pre-period, giving up with an error after
+     *  LIMIT keypresses of the faster of the two sequences followed.
+     *  Return this. */
+    StateCycle analyze(long limit) {
+        Machine hare = fresh();
+        long tortoise = _start;
+        hare.advance(1);
+        long h = state(hare);
+        long power = 1, period = 1, steps = 1;
+        while (tortoise != h) {
+            if (steps >= limit) {
+                throw error("no cycle found within %d keypresses", limit);
+            }
+            if (power == period) {
+                tortoise = h;
+                power *= 2;
+                period = 0;
+            }
+            hare.advance(1);
+            h = state(hare);
+            period += 1;
+            steps += 1;
+        }
+        Machine slow = fresh();
+        Machine fast = fresh();
+        fast.advance(period);
+        long prePeriod = 0;
+        while (state(slow) != state(fast)) {
+            slow.advance(1);
+            fast.advance(1);
+            prePeriod += 1;
+        }
+        _period = period;
+        _prePeriod = prePeriod;
+        return this;
+    }
+
+    /** Find the period and pre-period with no limit on the keypresses
+     *  followed (the number of states bounds them).  Return this. */
+    StateCycle analyze() {
+        return analyze(Long.MAX_VALUE);
+    }
+
+    /** Return the length of the cycle of states, after analyze. */
+    long period() {
+        checkAnalyzed();
+        return _period;
+    }
+
+    /** Return the number of keypresses from the starting state to the
+     *  first state on the cycle, after analyze. */
+    long prePeriod() {
+        checkAnalyzed();
+        return _prePeriod;
+    }
+
+    /** Check that analyze has been called. */
+    private void checkAnalyzed() {
+        if (_period == 0) {
+            throw error("cycle not analyzed");
+        }
+    }
+
+    /** Print the period and pre-period of the machine given by ARGS:
+     *  ARGS[0] names a configuration file and ARGS[1] is a settings line.
+     *  Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length != 2) {
+                throw error("usage: CONFIG SETTINGS");
+            }
+            StateCycle cycle =
+                new StateCycle(Main.loadConfig(args[0], args[1])).analyze();
+            System.out.printf("period %d, pre-period %d, states %d%n",
+                              cycle.period(), cycle.prePeriod(),
+                              cycle.states());
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A copy of the machine analyzed, in its starting state. */
+    private final Machine _machine;
+    /** Size of its alphabet. */
+    private final int _size;
+    /** Number of possible states. */
+    private final long _states;
+    /** The starting state. */
+    private final long _start;
+    /** The period, or 0 before analyze. */
+    private long _period;
+    /** The pre-period. */
+    private long _prePeriod;
+}
@@ -0,0 +1,102 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static enigma.MachineTest.navalMachine;
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the StateCycle class.
+ *  @author Wenhan Jin
+ */
+public class StateCycleTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /** Return the settings of M's rotors after the reflector, as a
+     *  string. */
+    private String positions(Machine m) {
+        char[] result = new char[m.numRotors() - 1];
+        for (int i = 1; i < m.numRotors(); i += 1) {
+            result[i - 1] = m.alphabet().toChar(m.position(i));
+        }
+        return new String(result);
+    }
+
+    /** Check the period and pre-period found for M against those found
+     *  by recording every state. */
+    private void checkAgainstRecord(String id, Machine m) {
+        StateCycle cycle = new StateCycle(m).analyze();
+        Machine walker = m.copy();
+        HashMap<String, Long> seen = new HashMap<>();
+        long step = 0;
+        String state = positions(walker);
+        while (!seen.containsKey(state)) {
+            seen.put(state, step);
+            walker.advance(1);
+            step += 1;
+            state = positions(walker);
+        }
+        long prePeriod = seen.get(state);
+        assertEquals(msg(id, "wrong period"), step - prePeriod,
+                     cycle.period());
+        assertEquals(msg(id, "wrong pre-period"), prePeriod,
+                     cycle.prePeriod());
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkNavalPeriod() {
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        StateCycle cycle = new StateCycle(m).analyze();
+        assertEquals(26 * 26 * 26, cycle.states());
+        assertEquals(26 * 25 * 26, cycle.period());
+        assertEquals(0, cycle.prePeriod());
+        assertEquals("AAAA", positions(m));
+    }
+
+    @Test
+    public void checkAgainstRecord() {
+        checkAgainstRecord("naval", navalMachine("AXDE", "B", "Beta", "I",
+                                                 "II", "III"));
+        checkAgainstRecord("naval2", navalMachine("QADV", "C", "Gamma",
+                                                  "V", "IV", "I"));
+        Alphabet ac = new CharacterRange('A', 'D');
+        String[] settings = {"AAA", "ACB", "CCD", "BDC"};
+        for (String notches : new String[] {"C", "AC", "BCD"}) {
+            ArrayList<Rotor> all = new ArrayList<>(Arrays.asList(
+                new Reflector("R1", new Permutation("(AC) (BD)", ac)),
+                new MovingRotor("R2", new Permutation("(ABCD)", ac), notches),
+                new MovingRotor("R3", new Permutation("(ABCD)", ac), notches),
+                new MovingRotor("R4", new Permutation("(ABCD)", ac),
+                                notches)));
+            for (String setting : settings) {
+                Machine m = new Machine(ac, 4, 3, all);
+                m.insertRotors(new String[] {"R1", "R2", "R3", "R4"});
+                m.setRotors(setting);
+                checkAgainstRecord(notches + " " + setting, m);
+            }
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkLimit() {
+        Machine m = navalMachine("AAAA", "B", "Beta", "I", "II", "III");
+        new StateCycle(m).analyze(1000);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkNotAnalyzed() {
+        new StateCycle(navalMachine("AAAA", "B", "Beta", "I", "II", "III"))
+            .period();
+    }
+}
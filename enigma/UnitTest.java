@@ -190,7 +190,15 @@ public class UnitTest {
     /** Run the JUnit tests in this package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
-        textui.runClasses(PermutationTest.class, MovingRotorTest.class);
+        textui.runClasses(PermutationTest.class, MovingRotorTest.class,
+                          MachineTest.class, LineReaderTest.class,
+                          GroupWriterTest.class, CompiledConfigTest.class,
+                          ExtendedAlphabetTest.class, MachineBankTest.class,
+                          CribSearchTest.class, IocSearchTest.class,
+                          PlugboardSearchTest.class, KeySpaceTest.class,
+                          StateCycleTest.class, MetricsTest.class,
+                          EventsTest.class, ServerTest.class,
+                          MainTest.class);
     }
 
 }
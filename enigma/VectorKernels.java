@@ -0,0 +1,114 @@
+package enigma;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** Table lookups over many characters at once with the Vector API.  Each
+ *  method has the same effect as a simple loop over its arrays; the
+ *  lanes that do not fill a whole vector are handled by that loop.  Only
+ *  to be used when VectorSupport.AVAILABLE.
+ *  @author Wenhan Jin
+ */
+final class VectorKernels {
+
+    /** Not instantiable. */
+    private VectorKernels() {
+    }
+
+    /** Replace each C[L], for L < LEN, by TABLE[BASE[L] + C[L]]. */
+    static void lookup(int[] table, int[] base, int[] c, int len) {
+        int[] index = INDEX.get();
+        int bound = SPECIES.loopBound(len);
+        int l;
+        for (l = 0; l < bound; l += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, base, l)
+                .add(IntVector.fromArray(SPECIES, c, l))
+                .intoArray(index, 0);
+            IntVector.fromArray(SPECIES, table, 0, index, 0)
+                .intoArray(c, l);
+        }
+        for (; l < len; l += 1) {
+            c[l] = table[base[l] + c[l]];
+        }
+    }
+
+    /** Replace each C[I], for I < LEN, by TABLE[C[I]]. */
+    static void lookup(int[] table, int[] c, int len) {
+        int bound = SPECIES.loopBound(len);
+        int i;
+        for (i = 0; i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, table, 0, c, i).intoArray(c, i);
+        }
+        for (; i < len; i += 1) {
+            c[i] = table[c[i]];
+        }
+    }
+
+    /** Pass each C[I], for I < LEN, through a rotor of an alphabet of
+     *  SIZE characters whose permutation is WIRING and whose position is
+     *  POS[OFF + I]. */
+    static void rotor(int[] wiring, int[] pos, int off, int[] c, int len,
+                      int size) {
+        int[] index = INDEX.get();
+        int bound = SPECIES.loopBound(len);
+        int i;
+        for (i = 0; i < bound; i += SPECIES.length()) {
+            IntVector s = IntVector.fromArray(SPECIES, pos, off + i);
+            IntVector p = IntVector.fromArray(SPECIES, c, i).add(s);
+            p.sub(size, p.compare(VectorOperators.GE, size))
+                .intoArray(index, 0);
+            IntVector r = IntVector.fromArray(SPECIES, wiring, 0, index, 0)
+                .sub(s);
+            VectorMask<Integer> negative = r.compare(VectorOperators.LT, 0);
+            r.add(size, negative).intoArray(c, i);
+        }
+        for (; i < len; i += 1) {
+            int s = pos[off + i];
+            int p = c[i] + s;
+            if (p >= size) {
+                p -= size;
+            }
+            int r = wiring[p] - s;
+            c[i] = r < 0 ? r + size : r;
+        }
+    }
+
+    /** Pass each C[L], for L < LEN, through a rotor of an alphabet of
+     *  SIZE characters whose permutation starts at WIRING[BASE[OFF + L]]
+     *  and whose position is POS[OFF + L]. */
+    static void rotor(int[] wiring, int[] base, int[] pos, int off,
+                      int[] c, int len, int size) {
+        int[] index = INDEX.get();
+        int bound = SPECIES.loopBound(len);
+        int l;
+        for (l = 0; l < bound; l += SPECIES.length()) {
+            IntVector s = IntVector.fromArray(SPECIES, pos, off + l);
+            IntVector p = IntVector.fromArray(SPECIES, c, l).add(s);
+            p = p.sub(size, p.compare(VectorOperators.GE, size));
+            IntVector.fromArray(SPECIES, base, off + l).add(p)
+                .intoArray(index, 0);
+            IntVector r = IntVector.fromArray(SPECIES, wiring, 0, index, 0)
+                .sub(s);
+            VectorMask<Integer> negative = r.compare(VectorOperators.LT, 0);
+            r.add(size, negative).intoArray(c, l);
+        }
+        for (; l < len; l += 1) {
+            int s = pos[off + l];
+            int p = c[l] + s;
+            if (p >= size) {
+                p -= size;
+            }
+            int r = wiring[base[off + l] + p] - s;
+            c[l] = r < 0 ? r + size : r;
+        }
+    }
+
+    /** The vector shape used. */
+    static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /** Per-thread scratch space for the indices of a gather. */
+    private static final ThreadLocal<int[]> INDEX =
+        ThreadLocal.withInitial(() -> new int[SPECIES.length()]);
+}
@@ -0,0 +1,20 @@
+package enigma;
+
+/** Whether the Vector API (the incubating module jdk.incubator.vector)
+ *  may be used.  It may be only if the module has been added to the
+ *  running JVM (with --add-modules jdk.incubator.vector) and the system
+ *  property enigma.vectors is not "false".  Classes using the API, such
+ *  as VectorKernels, must not be touched otherwise.
+ *  @author Wenhan Jin
+ */
+final class VectorSupport {
+
+    /** Not instantiable. */
+    private VectorSupport() {
+    }
+
+    /** True iff the Vector API may be used. */
+    static final boolean AVAILABLE =
+        ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+        && !"false".equals(System.getProperty("enigma.vectors"));
+}